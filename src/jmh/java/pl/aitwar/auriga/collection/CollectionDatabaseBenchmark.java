@@ -0,0 +1,95 @@
+package pl.aitwar.auriga.collection;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pl.aitwar.auriga.collection.model.CollectionDescriptor;
+import pl.aitwar.auriga.collection.model.NodeIds;
+import pl.aitwar.auriga.collection.snapshot.CollectionSnapshot;
+import pl.aitwar.auriga.collection.snapshot.CollectionSnapshotWriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class CollectionDatabaseBenchmark {
+    private static final TypeReference<Map<String, CollectionDescriptor>> DESCRIPTORS = new TypeReference<>() {
+    };
+
+    @Param({"10000", "100000", "1000000"})
+    public int collections;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private Map<String, CollectionDescriptor> descriptors;
+    private Path directory;
+    private Path json;
+    private Path snapshot;
+
+    @Setup
+    public void setUp() throws IOException {
+        descriptors = new LinkedHashMap<>();
+        final NodeIds nodeIds = new NodeIds();
+        for (int i = 0; i < collections; i++) {
+            final String name = "collection-" + i;
+            descriptors.put(name, CollectionDescriptor.builder()
+                    .name(name)
+                    .targetReplicationLevel(3)
+                    .currentReplicationLevel(3)
+                    .nodeIds(nodeIds)
+                    .containingNodesName("node-" + (i % 50))
+                    .containingNodesName("node-" + ((i + 1) % 50))
+                    .containingNodesName("node-" + ((i + 2) % 50))
+                    .build());
+        }
+
+        directory = Files.createTempDirectory("auriga-bench");
+        json = directory.resolve("collections.json");
+        snapshot = directory.resolve("collections.db");
+        objectMapper.writeValue(json.toFile(), descriptors);
+        CollectionSnapshotWriter.write(snapshot, descriptors.values());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(json);
+        Files.deleteIfExists(snapshot);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public void saveJson() throws IOException {
+        objectMapper.writeValue(json.toFile(), descriptors);
+    }
+
+    @Benchmark
+    public Map<String, CollectionDescriptor> loadJson() throws IOException {
+        return objectMapper.readValue(json.toFile(), DESCRIPTORS);
+    }
+
+    @Benchmark
+    public void saveSnapshot() throws IOException {
+        CollectionSnapshotWriter.write(snapshot, descriptors.values());
+    }
+
+    @Benchmark
+    public CollectionSnapshot openSnapshot() throws IOException {
+        return CollectionSnapshot.open(snapshot, new NodeIds());
+    }
+
+    @Benchmark
+    public void loadSnapshot(final Blackhole blackhole) throws IOException {
+        final CollectionSnapshot opened = CollectionSnapshot.open(snapshot, new NodeIds());
+        for (int i = 0; i < opened.size(); i++) {
+            blackhole.consume(opened.descriptorAt(i));
+        }
+    }
+}
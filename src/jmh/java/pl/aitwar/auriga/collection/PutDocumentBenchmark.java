@@ -0,0 +1,47 @@
+package pl.aitwar.auriga.collection;
+
+import org.openjdk.jmh.annotations.*;
+import pl.aitwar.auriga.collection.model.DocumentPayload;
+import pl.aitwar.auriga.collection.model.WriteConsistency;
+
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PutDocumentBenchmark {
+    private static final String DOCUMENT = "{\"name\":\"benchmark\",\"tags\":[\"a\",\"b\",\"c\"],\"value\":42}";
+    private static final int COLLECTIONS = 100;
+
+    @Param({"1", "3"})
+    public int replication;
+
+    @Param({"ONE", "ALL"})
+    public WriteConsistency consistency;
+
+    @Param({"false", "true"})
+    public boolean writeBatching;
+
+    private StubCluster cluster;
+    private CollectionService collectionService;
+
+    @Setup
+    public void setUp() throws Exception {
+        cluster = new StubCluster(5, CollectionConfiguration.builder().writeBatching(writeBatching));
+        collectionService = cluster.get(CollectionService.class);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        cluster.close();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Set<String> putDocument() {
+        final String collectionName = "collection-" + ThreadLocalRandom.current().nextInt(COLLECTIONS);
+        return collectionService.putDocument(collectionName, DocumentPayload.of(DOCUMENT), replication, consistency).join();
+    }
+}
@@ -0,0 +1,53 @@
+package pl.aitwar.auriga.collection;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ReadRoutingBenchmark {
+    private static final int COLLECTIONS = 10_000;
+    private static final int REPLICATION = 3;
+
+    @Param({"10", "100"})
+    public int nodes;
+
+    private StubCluster cluster;
+    private CollectionService collectionService;
+    private String[] names;
+
+    @Setup
+    public void setUp() throws Exception {
+        cluster = new StubCluster(nodes, CollectionConfiguration.builder());
+        collectionService = cluster.get(CollectionService.class);
+
+        final CollectionMetadataStore store = cluster.get(CollectionMetadataStore.class);
+        names = new String[COLLECTIONS];
+        for (int i = 0; i < COLLECTIONS; i++) {
+            names[i] = "collection-" + i;
+            store.create(names[i], REPLICATION);
+            for (int replica = 0; replica < REPLICATION; replica++) {
+                store.addReplica(names[i], "node-" + ((i + replica) % nodes));
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        cluster.close();
+    }
+
+    @Benchmark
+    public String getCollectionAddress() {
+        return collectionService.getCollectionAddress(names[ThreadLocalRandom.current().nextInt(COLLECTIONS)]).join();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String getCollectionAddressContended() {
+        return collectionService.getCollectionAddress(names[ThreadLocalRandom.current().nextInt(COLLECTIONS)]).join();
+    }
+}
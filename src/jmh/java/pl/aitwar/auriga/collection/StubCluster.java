@@ -0,0 +1,72 @@
+package pl.aitwar.auriga.collection;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.util.Modules;
+import io.javalin.Javalin;
+import pl.aitwar.auriga.nodes.NodesConfiguration;
+import pl.aitwar.auriga.nodes.NodesModule;
+import pl.aitwar.auriga.nodes.NodesService;
+import pl.aitwar.auriga.nodes.model.NodeRegistration;
+import pl.aitwar.auriga.transport.TransportModule;
+import pl.aitwar.auriga.utils.BackgroundExecutors;
+import pl.aitwar.auriga.utils.UtilsModule;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+// Every node name points at the same in-process stub server
+class StubCluster implements AutoCloseable {
+    private final Javalin stub;
+    private final Path directory;
+    private final Injector injector;
+
+    StubCluster(final int nodes, final CollectionConfiguration.CollectionConfigurationBuilder configuration) throws Exception {
+        stub = Javalin.create()
+                .disableStartupBanner()
+                .port(0)
+                .start();
+        stub.get("/status", ctx -> ctx.result("{\"name\":\"stub\",\"load\":0.1,\"collections\":[]}"));
+        stub.get("/collections/:name", ctx -> ctx.result("[]"));
+        stub.post("/collections/:name", ctx -> ctx.status(201));
+        stub.post("/collections/:name/batch", ctx -> ctx.status(201));
+
+        directory = Files.createTempDirectory("auriga-bench");
+        final CollectionConfiguration collectionConfiguration = configuration
+                .snapshotFile(directory.resolve("collections.db").toString())
+                .legacySnapshotFile(directory.resolve("collections.json").toString())
+                .journalFile(directory.resolve("collections.journal").toString())
+                .build();
+
+        injector = Guice.createInjector(new UtilsModule(), new TransportModule(),
+                Modules.override(new NodesModule())
+                        .with(binder -> binder.bind(NodesConfiguration.class)
+                                .toInstance(NodesConfiguration.builder().statusPort(stub.port()).build())),
+                Modules.override(new CollectionModule())
+                        .with(binder -> binder.bind(CollectionConfiguration.class).toInstance(collectionConfiguration)));
+
+        final NodesService nodesService = injector.getInstance(NodesService.class);
+        for (int i = 0; i < nodes; i++) {
+            final NodeRegistration registration = new NodeRegistration();
+            registration.setName("node-" + i);
+            registration.setAddress("127.0.0.1:" + stub.port());
+            nodesService.registerNode(registration);
+        }
+    }
+
+    <T> T get(final Class<T> type) {
+        return injector.getInstance(type);
+    }
+
+    @Override
+    public void close() throws IOException {
+        injector.getInstance(BackgroundExecutors.class).shutdown();
+        stub.stop();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
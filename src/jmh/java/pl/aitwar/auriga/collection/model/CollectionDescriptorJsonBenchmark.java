@@ -0,0 +1,39 @@
+package pl.aitwar.auriga.collection.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CollectionDescriptorJsonBenchmark {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private CollectionDescriptor descriptor;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        descriptor = CollectionDescriptor.builder()
+                .name("collection-42")
+                .targetReplicationLevel(3)
+                .currentReplicationLevel(3)
+                .containingNodesName("node-1")
+                .containingNodesName("node-2")
+                .containingNodesName("node-3")
+                .build();
+        json = objectMapper.writeValueAsBytes(descriptor);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(descriptor);
+    }
+
+    @Benchmark
+    public CollectionDescriptor deserialize() throws IOException {
+        return objectMapper.readValue(json, CollectionDescriptor.class);
+    }
+}
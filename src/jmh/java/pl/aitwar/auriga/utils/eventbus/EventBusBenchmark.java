@@ -0,0 +1,36 @@
+package pl.aitwar.auriga.utils.eventbus;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EventBusBenchmark {
+    @Param({"0", "1", "10"})
+    public int listeners;
+
+    @Param({"false", "true"})
+    public boolean async;
+
+    private EventBus eventBus;
+
+    @Setup
+    public void setUp(final Blackhole blackhole) {
+        eventBus = new EventBus();
+        for (int i = 0; i < listeners; i++) {
+            if (async) {
+                eventBus.listenAsync(Event.NODE_ADD, Backpressure.DROP, blackhole::consume);
+            } else {
+                eventBus.listen(Event.NODE_ADD, blackhole::consume);
+            }
+        }
+    }
+
+    @Benchmark
+    public void publish() {
+        eventBus.publish(Event.NODE_ADD, "node-1");
+    }
+}
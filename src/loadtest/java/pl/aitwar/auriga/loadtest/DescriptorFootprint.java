@@ -0,0 +1,82 @@
+package pl.aitwar.auriga.loadtest;
+
+import pl.aitwar.auriga.collection.CollectionMetadataStore;
+import pl.aitwar.auriga.collection.model.CollectionDescriptor;
+import pl.aitwar.auriga.collection.model.NodeIds;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+
+// Run with ./gradlew descriptorFootprint -PfootprintArgs="--collections=1000000 --nodes=48"
+public class DescriptorFootprint {
+    private static final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+    public static void main(String[] args) {
+        int collections = 1_000_000;
+        int nodes = 48;
+        for (String arg : args) {
+            if (arg.startsWith("--collections=")) {
+                collections = Integer.parseInt(arg.substring("--collections=".length()));
+            } else if (arg.startsWith("--nodes=")) {
+                nodes = Integer.parseInt(arg.substring("--nodes=".length()));
+            }
+        }
+
+        final String[] nodeNames = new String[nodes];
+        for (int i = 0; i < nodes; i++) {
+            nodeNames[i] = "storage-node-" + i;
+        }
+
+        long before = usedHeap();
+        final NodeIds nodeIds = new NodeIds();
+        final CollectionDescriptor[] descriptors = new CollectionDescriptor[collections];
+        for (int i = 0; i < collections; i++) {
+            descriptors[i] = replicated(CollectionDescriptor.builder()
+                    .name(collectionName(i))
+                    .targetReplicationLevel(3)
+                    .nodeIds(nodeIds)
+                    .build(), nodeNames, i);
+        }
+        report("descriptors", usedHeap() - before, collections);
+
+        before = usedHeap();
+        final CollectionMetadataStore store = new CollectionMetadataStore(entry -> {
+        });
+        for (int i = 0; i < collections; i++) {
+            final String name = collectionName(i);
+            store.getOrCreate(name, 3);
+            for (int replica = 0; replica < 3; replica++) {
+                store.addReplica(name, nodeNames[(i + replica * 7) % nodes]);
+            }
+        }
+        report("metadata store", usedHeap() - before, collections);
+
+        // Keep both alive until measured
+        Reference.reachabilityFence(descriptors);
+        Reference.reachabilityFence(store);
+    }
+
+    private static CollectionDescriptor replicated(CollectionDescriptor descriptor, final String[] nodeNames, final int i) {
+        for (int replica = 0; replica < 3; replica++) {
+            descriptor = descriptor.withNode(nodeNames[(i + replica * 7) % nodeNames.length]);
+        }
+        return descriptor;
+    }
+
+    private static String collectionName(final int i) {
+        return "tenant-" + (i % 1000) + "/collection-" + i;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static void report(final String what, final long bytes, final int collections) {
+        System.out.println(String.format("%-15s %8.1f MB  %6.1f bytes per collection",
+                what, bytes / 1024.0 / 1024.0, (double) bytes / collections));
+    }
+}
@@ -0,0 +1,187 @@
+package pl.aitwar.auriga.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.javalin.Context;
+import io.javalin.Javalin;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+class FakeNode {
+    private final String name;
+    private final NodeProfile profile;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final Map<String, List<String>> collections = new ConcurrentHashMap<>();
+    private Javalin app;
+
+    FakeNode(final String name, final NodeProfile profile) {
+        this.name = name;
+        this.profile = profile;
+    }
+
+    FakeNode start() {
+        app = Javalin.create()
+                .disableStartupBanner()
+                .defaultContentType("application/json")
+                .port(0);
+
+        app.get("/status", this::status);
+        app.get("/collections/:name", ctx -> simulated(ctx, () -> read(ctx)));
+        app.post("/collections/:name", ctx -> simulated(ctx, () -> write(ctx)));
+        app.post("/collections/:name/batch", ctx -> simulated(ctx, () -> writeBatch(ctx)));
+        app.post("/collections/:name/copy", ctx -> simulated(ctx, () -> copy(ctx)));
+        app.delete("/collections/:name", ctx -> simulated(ctx, () -> {
+            collections.remove(ctx.pathParam("name"));
+            ctx.status(204);
+        }));
+
+        app.start();
+        return this;
+    }
+
+    void stop() {
+        app.stop();
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String getAddress() {
+        return "127.0.0.1:" + app.port();
+    }
+
+    // -1 when the node does not hold the collection
+    int countOf(final String collectionName) {
+        final List<String> documents = collections.get(collectionName);
+        return documents == null ? -1 : documents.size();
+    }
+
+    // Sorted, so replicas holding the same documents compare equal
+    List<String> contentsOf(final String collectionName) {
+        final List<String> documents = collections.get(collectionName);
+        if (documents == null) {
+            return List.of();
+        }
+
+        synchronized (documents) {
+            final List<String> sorted = new ArrayList<>(documents);
+            java.util.Collections.sort(sorted);
+            return sorted;
+        }
+    }
+
+    private void status(final Context ctx) throws IOException {
+        final ObjectNode status = objectMapper.createObjectNode()
+                .put("name", name)
+                .put("load", profile.getLoad());
+        final ArrayNode statistics = status.putArray("collections");
+        collections.forEach((collectionName, documents) -> statistics.addObject()
+                .put("name", collectionName)
+                .put("itemCount", documents.size()));
+        ctx.result(objectMapper.writeValueAsString(status));
+    }
+
+    private void read(final Context ctx) {
+        final List<String> documents = collections.get(ctx.pathParam("name"));
+        if (documents == null) {
+            ctx.status(404);
+            return;
+        }
+
+        synchronized (documents) {
+            ctx.result("[" + String.join(",", documents) + "]");
+        }
+    }
+
+    private void write(final Context ctx) throws IOException {
+        documentsOf(ctx.pathParam("name")).add(objectMapper.writeValueAsString(objectMapper.readTree(ctx.body())));
+        ctx.status(201);
+    }
+
+    private void writeBatch(final Context ctx) throws IOException {
+        final List<String> documents = documentsOf(ctx.pathParam("name"));
+        for (JsonNode document : objectMapper.readTree(ctx.body())) {
+            documents.add(objectMapper.writeValueAsString(document));
+        }
+        ctx.status(201);
+    }
+
+    private void copy(final Context ctx) throws IOException, InterruptedException {
+        final JsonNode request = objectMapper.readTree(ctx.body());
+        final String collectionName = request.get("name").asText();
+        if (!request.hasNonNull("limit") || !request.hasNonNull("partition") || !request.hasNonNull("partitions")) {
+            ctx.status(400);
+            return;
+        }
+
+        final HttpResponse<String> response = client.send(HttpRequest.newBuilder()
+                .uri(URI.create(request.get("url").asText() + "/collections/" + collectionName))
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        if (response.statusCode() != 200) {
+            ctx.status(502);
+            return;
+        }
+
+        final List<String> source = new ArrayList<>();
+        for (JsonNode document : objectMapper.readTree(response.body())) {
+            source.add(objectMapper.writeValueAsString(document));
+        }
+
+        final long limit = request.get("limit").asLong();
+        if (source.size() < limit) {
+            ctx.status(409);
+            return;
+        }
+
+        final int partition = request.get("partition").asInt();
+        final int partitions = request.get("partitions").asInt();
+        final List<String> documents = documentsOf(collectionName);
+        synchronized (documents) {
+            documents.removeIf(document -> partitionOf(document, partitions) == partition);
+            source.subList(0, (int) limit)
+                    .stream()
+                    .filter(document -> partitionOf(document, partitions) == partition)
+                    .forEach(documents::add);
+        }
+        ctx.status(201);
+    }
+
+    private static int partitionOf(final String document, final int partitions) {
+        final CRC32 crc = new CRC32();
+        crc.update(document.getBytes(StandardCharsets.UTF_8));
+        return (int) (crc.getValue() % partitions);
+    }
+
+    private List<String> documentsOf(final String collectionName) {
+        return collections.computeIfAbsent(collectionName, key -> java.util.Collections.synchronizedList(new ArrayList<>()));
+    }
+
+    private void simulated(final Context ctx, final Handler handler) throws Exception {
+        profile.delay();
+        if (profile.shouldFail()) {
+            ctx.status(500);
+            return;
+        }
+        handler.handle();
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        void handle() throws Exception;
+    }
+}
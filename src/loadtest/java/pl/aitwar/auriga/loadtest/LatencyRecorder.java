@@ -0,0 +1,45 @@
+package pl.aitwar.auriga.loadtest;
+
+import java.util.Arrays;
+
+class LatencyRecorder {
+    private long[] samples = new long[1024];
+    private int size;
+    private long failures;
+
+    void record(final long nanos) {
+        if (size == samples.length) {
+            samples = Arrays.copyOf(samples, size * 2);
+        }
+        samples[size++] = nanos;
+    }
+
+    void fail() {
+        failures++;
+    }
+
+    void merge(final LatencyRecorder other) {
+        if (size + other.size > samples.length) {
+            samples = Arrays.copyOf(samples, Math.max(samples.length * 2, size + other.size));
+        }
+        System.arraycopy(other.samples, 0, samples, size, other.size);
+        size += other.size;
+        failures += other.failures;
+    }
+
+    String report(final String operation, final double seconds) {
+        final long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        return String.format("%-6s ops=%-8d failed=%-6d throughput=%9.1f/s p50=%7.2fms p99=%7.2fms p999=%7.2fms max=%7.2fms",
+                operation, size, failures, size / seconds,
+                millis(sorted, 0.5), millis(sorted, 0.99), millis(sorted, 0.999), millis(sorted, 1.0));
+    }
+
+    private static double millis(final long[] sorted, final double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        final int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+}
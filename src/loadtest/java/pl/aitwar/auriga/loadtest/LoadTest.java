@@ -0,0 +1,279 @@
+package pl.aitwar.auriga.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.Guice;
+import com.google.inject.util.Modules;
+import pl.aitwar.auriga.AppModule;
+import pl.aitwar.auriga.Startup;
+import pl.aitwar.auriga.collection.CollectionConfiguration;
+import pl.aitwar.auriga.nodes.NodesConfiguration;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Run with ./gradlew loadTest -PloadTestArgs="--nodes=5 --clients=16 --churn-interval=10"
+public class LoadTest {
+    private static final int COORDINATOR_PORT = 8000;
+
+    private final LoadTestOptions options;
+    private final String coordinator;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+    private final List<FakeNode> nodes = new ArrayList<>();
+    private final List<Long> convergenceTimes = new ArrayList<>();
+    private final AtomicInteger nodeIds = new AtomicInteger();
+
+    private LoadTest(final LoadTestOptions options) {
+        this.options = options;
+        this.coordinator = options.isInProcess() ? "http://127.0.0.1:" + COORDINATOR_PORT : options.coordinator;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final LoadTestOptions options = LoadTestOptions.parse(args);
+        if (options.isInProcess()) {
+            startCoordinator();
+        }
+
+        new LoadTest(options).run();
+        System.exit(0);
+    }
+
+    private static void startCoordinator() throws IOException {
+        final Path directory = Files.createTempDirectory("auriga-loadtest");
+        directory.toFile().deleteOnExit();
+
+        final CollectionConfiguration configuration = CollectionConfiguration.builder()
+                .snapshotFile(directory.resolve("collections.db").toString())
+                .legacySnapshotFile(directory.resolve("collections.json").toString())
+                .journalFile(directory.resolve("collections.journal").toString())
+                .repairInterval(Duration.ofSeconds(1))
+                // Small chunks, so that copies of the few documents written here still span several sources
+                .copyChunkDocuments(10)
+                .build();
+
+        // Every fake node serves its status on the port it registers with
+        final NodesConfiguration nodesConfiguration = NodesConfiguration.builder()
+                .statusOnNodePort(true)
+                .build();
+
+        Guice.createInjector(Modules.override(AppModule.create())
+                .with(binder -> {
+                    binder.bind(CollectionConfiguration.class).toInstance(configuration);
+                    binder.bind(NodesConfiguration.class).toInstance(nodesConfiguration);
+                }))
+                .getInstance(Startup.class)
+                .boot(new String[0]);
+    }
+
+    private void run() throws Exception {
+        for (int i = 0; i < options.nodes; i++) {
+            addNode(options.profileOf(i));
+        }
+
+        log("Seeding %d collections with replication %d", options.collections, options.replication);
+        for (int i = 0; i < options.collections; i++) {
+            write(collectionName(i));
+        }
+        awaitConvergence(null);
+
+        final ExecutorService clients = Executors.newFixedThreadPool(options.clients);
+        final long deadline = System.nanoTime() + Duration.ofSeconds(options.durationSeconds).toNanos();
+        final List<Future<LatencyRecorder[]>> results = new ArrayList<>();
+        for (int i = 0; i < options.clients; i++) {
+            results.add(clients.submit(() -> drive(deadline)));
+        }
+
+        final long start = System.nanoTime();
+        if (options.churnIntervalSeconds > 0) {
+            churn(deadline);
+        }
+
+        final LatencyRecorder reads = new LatencyRecorder();
+        final LatencyRecorder writes = new LatencyRecorder();
+        for (Future<LatencyRecorder[]> result : results) {
+            reads.merge(result.get()[0]);
+            writes.merge(result.get()[1]);
+        }
+        clients.shutdown();
+
+        final double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        log("%s", reads.report("read", seconds));
+        log("%s", writes.report("write", seconds));
+        convergenceTimes.forEach(millis -> log("re-replication converged in %d ms", millis));
+        awaitConvergence(null);
+        checkReplicas();
+        nodes.forEach(FakeNode::stop);
+    }
+
+    private LatencyRecorder[] drive(final long deadline) {
+        final LatencyRecorder reads = new LatencyRecorder();
+        final LatencyRecorder writes = new LatencyRecorder();
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        while (System.nanoTime() < deadline) {
+            final String collectionName = collectionName(random.nextInt(options.collections));
+            final boolean read = random.nextDouble() < options.readRatio;
+            final LatencyRecorder recorder = read ? reads : writes;
+            final long start = System.nanoTime();
+            try {
+                final int status = read ? read(collectionName) : write(collectionName);
+                if (status >= 400) {
+                    recorder.fail();
+                } else {
+                    recorder.record(System.nanoTime() - start);
+                }
+            } catch (IOException e) {
+                recorder.fail();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        return new LatencyRecorder[]{reads, writes};
+    }
+
+    private void churn(final long deadline) throws Exception {
+        while (System.nanoTime() + Duration.ofSeconds(options.churnIntervalSeconds).toNanos() < deadline) {
+            Thread.sleep(Duration.ofSeconds(options.churnIntervalSeconds).toMillis());
+
+            final FakeNode victim = nodes.remove(ThreadLocalRandom.current().nextInt(nodes.size()));
+            victim.stop();
+            log("Killed '%s'", victim.getName());
+            final long killedAt = System.nanoTime();
+
+            addNode(options.profileOf(nodes.size()));
+            if (awaitConvergence(victim.getName())) {
+                convergenceTimes.add((System.nanoTime() - killedAt) / 1_000_000);
+            }
+        }
+    }
+
+    private boolean awaitConvergence(final String deadNode) throws Exception {
+        final long deadline = System.nanoTime() + Duration.ofSeconds(options.convergenceTimeoutSeconds).toNanos();
+        while (System.nanoTime() < deadline) {
+            if (underReplicated(deadNode) == 0) {
+                return true;
+            }
+            Thread.sleep(200);
+        }
+
+        log("Cluster did not converge within %d s, %d collections under-replicated",
+                options.convergenceTimeoutSeconds, underReplicated(deadNode));
+        return false;
+    }
+
+    // Late hinted writes get a moment to land first
+    private void checkReplicas() throws Exception {
+        Thread.sleep(3000);
+
+        final HttpResponse<String> response = client.send(HttpRequest.newBuilder()
+                .uri(URI.create(coordinator + "/collections"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        int diverged = 0;
+        for (JsonNode descriptor : objectMapper.readTree(response.body())) {
+            final String collectionName = descriptor.get("name").asText();
+            final Map<String, Integer> counts = new TreeMap<>();
+            final Set<List<String>> contents = new HashSet<>();
+            for (JsonNode nodeName : descriptor.get("containingNodesNames")) {
+                nodes.stream()
+                        .filter(node -> node.getName().equals(nodeName.asText()))
+                        .findFirst()
+                        .ifPresent(node -> {
+                            counts.put(node.getName(), node.countOf(collectionName));
+                            contents.add(node.contentsOf(collectionName));
+                        });
+            }
+
+            if (contents.size() > 1) {
+                diverged++;
+                log("Replicas of '%s' diverged: %s", collectionName, counts);
+            }
+        }
+        log("replicas consistent in %d of %d collections", options.collections - diverged, options.collections);
+    }
+
+    private int underReplicated(final String deadNode) throws IOException, InterruptedException {
+        final HttpResponse<String> response = client.send(HttpRequest.newBuilder()
+                .uri(URI.create(coordinator + "/collections"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        int count = 0;
+        for (JsonNode descriptor : objectMapper.readTree(response.body())) {
+            final boolean onDeadNode = deadNode != null
+                    && descriptor.get("containingNodesNames").toString().contains("\"" + deadNode + "\"");
+            if (onDeadNode
+                    || descriptor.get("currentReplicationLevel").asInt() < descriptor.get("targetReplicationLevel").asInt()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int read(final String collectionName) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder()
+                .uri(URI.create(coordinator + "/collections/" + collectionName))
+                .timeout(Duration.ofSeconds(10))
+                .build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private int write(final String collectionName) throws IOException, InterruptedException {
+        final String document = "{\"value\":" + ThreadLocalRandom.current().nextLong() + "}";
+        return client.send(HttpRequest.newBuilder()
+                .uri(URI.create(coordinator + "/collections/" + collectionName + "?replication=" + options.replication
+                        + "&consistency=" + options.consistency))
+                .timeout(Duration.ofSeconds(10))
+                .POST(HttpRequest.BodyPublishers.ofString(document))
+                .build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private void addNode(final NodeProfile profile) throws IOException, InterruptedException {
+        final FakeNode node = new FakeNode("fake-" + nodeIds.getAndIncrement(), profile).start();
+        final String registration = objectMapper.createObjectNode()
+                .put("name", node.getName())
+                .put("address", node.getAddress())
+                .toString();
+
+        final HttpResponse<String> response = client.send(HttpRequest.newBuilder()
+                .uri(URI.create(coordinator + "/nodes"))
+                .POST(HttpRequest.BodyPublishers.ofString(registration))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 400) {
+            node.stop();
+            throw new IllegalStateException("Could not register '" + node.getName() + "': " + response.statusCode());
+        }
+
+        nodes.add(node);
+        log("Registered '%s' at %s", node.getName(), node.getAddress());
+    }
+
+    private static String collectionName(final int index) {
+        return "collection-" + index;
+    }
+
+    private static void log(final String format, final Object... args) {
+        System.out.println(String.format(format, args));
+    }
+}
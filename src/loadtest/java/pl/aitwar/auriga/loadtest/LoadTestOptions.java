@@ -0,0 +1,61 @@
+package pl.aitwar.auriga.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+class LoadTestOptions {
+    final String coordinator;
+    final int nodes;
+    final int replication;
+    final String consistency;
+    final int collections;
+    final int clients;
+    final int durationSeconds;
+    final double readRatio;
+    final long latencyMillis;
+    final long jitterMillis;
+    final double failureRate;
+    final int slowNodes;
+    final long slowLatencyMillis;
+    final int churnIntervalSeconds;
+    final int convergenceTimeoutSeconds;
+
+    private LoadTestOptions(final Map<String, String> values) {
+        coordinator = values.getOrDefault("coordinator", "");
+        nodes = Integer.parseInt(values.getOrDefault("nodes", "5"));
+        replication = Integer.parseInt(values.getOrDefault("replication", "3"));
+        consistency = values.getOrDefault("consistency", "all");
+        collections = Integer.parseInt(values.getOrDefault("collections", "100"));
+        clients = Integer.parseInt(values.getOrDefault("clients", "16"));
+        durationSeconds = Integer.parseInt(values.getOrDefault("duration", "30"));
+        readRatio = Double.parseDouble(values.getOrDefault("read-ratio", "0.8"));
+        latencyMillis = Long.parseLong(values.getOrDefault("latency", "2"));
+        jitterMillis = Long.parseLong(values.getOrDefault("jitter", "3"));
+        failureRate = Double.parseDouble(values.getOrDefault("failure-rate", "0"));
+        slowNodes = Integer.parseInt(values.getOrDefault("slow-nodes", "0"));
+        slowLatencyMillis = Long.parseLong(values.getOrDefault("slow-latency", "100"));
+        churnIntervalSeconds = Integer.parseInt(values.getOrDefault("churn-interval", "0"));
+        convergenceTimeoutSeconds = Integer.parseInt(values.getOrDefault("convergence-timeout", "120"));
+    }
+
+    static LoadTestOptions parse(final String[] args) {
+        final Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got '" + arg + "'");
+            }
+            final int separator = arg.indexOf('=');
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return new LoadTestOptions(values);
+    }
+
+    boolean isInProcess() {
+        return coordinator.isEmpty();
+    }
+
+    NodeProfile profileOf(final int index) {
+        final long latency = index < slowNodes ? slowLatencyMillis : latencyMillis;
+        return new NodeProfile(latency, jitterMillis, failureRate, 0.1 + 0.1 * (index % 5));
+    }
+}
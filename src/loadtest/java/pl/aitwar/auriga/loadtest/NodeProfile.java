@@ -0,0 +1,32 @@
+package pl.aitwar.auriga.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+class NodeProfile {
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final double failureRate;
+    private final double load;
+
+    NodeProfile(final long latencyMillis, final long jitterMillis, final double failureRate, final double load) {
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.failureRate = failureRate;
+        this.load = load;
+    }
+
+    void delay() throws InterruptedException {
+        final long jitter = jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0;
+        if (latencyMillis + jitter > 0) {
+            Thread.sleep(latencyMillis + jitter);
+        }
+    }
+
+    boolean shouldFail() {
+        return failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate;
+    }
+
+    double getLoad() {
+        return load;
+    }
+}
@@ -5,7 +5,9 @@ import io.javalin.Javalin;
 import org.jetbrains.annotations.NotNull;
 import pl.aitwar.auriga.collection.CollectionModule;
 import pl.aitwar.auriga.configuration.ConfigurationModule;
+import pl.aitwar.auriga.metrics.MetricsModule;
 import pl.aitwar.auriga.nodes.NodesModule;
+import pl.aitwar.auriga.transport.TransportModule;
 import pl.aitwar.auriga.utils.UtilsModule;
 
 public class AppModule extends AbstractModule {
@@ -19,6 +21,7 @@ public class AppModule extends AbstractModule {
     public static AppModule create() {
         Javalin app = Javalin.create()
                 .defaultContentType("application/json")
+                .disableRequestCache()
                 .disableStartupBanner();
 
         return new AppModule(app);
@@ -28,8 +31,10 @@ public class AppModule extends AbstractModule {
         bind(Javalin.class).toInstance(app);
         bind(Startup.class);
         install(new UtilsModule());
+        install(new TransportModule());
         install(new CollectionModule());
         install(new NodesModule());
         install(new ConfigurationModule());
+        install(new MetricsModule());
     }
 }
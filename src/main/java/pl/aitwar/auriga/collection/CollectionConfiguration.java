@@ -0,0 +1,99 @@
+package pl.aitwar.auriga.collection;
+
+import lombok.Builder;
+import lombok.Data;
+import pl.aitwar.auriga.collection.model.WriteConsistency;
+import pl.aitwar.auriga.collection.placement.PlacementMode;
+
+import java.time.Duration;
+
+@Data
+@Builder
+public class CollectionConfiguration {
+    @Builder.Default
+    private String snapshotFile = "collections.db";
+    @Builder.Default
+    private String legacySnapshotFile = "collections.json";
+    @Builder.Default
+    private String journalFile = "collections.journal";
+    @Builder.Default
+    private int journalMaxBatch = 1024;
+    @Builder.Default
+    private Duration compactionInterval = Duration.ofMinutes(5);
+    @Builder.Default
+    private long compactionJournalSize = 64 * 1024 * 1024;
+    @Builder.Default
+    private Duration journalRotationTimeout = Duration.ofSeconds(30);
+    @Builder.Default
+    private Duration journalRetryDelay = Duration.ofSeconds(1);
+    @Builder.Default
+    private boolean writeBatching = false;
+    @Builder.Default
+    private int batchMaxDocuments = 256;
+    @Builder.Default
+    private long batchMaxBytes = 1024 * 1024;
+    @Builder.Default
+    private Duration batchLinger = Duration.ofMillis(2);
+    @Builder.Default
+    private int writeQueueCapacity = 10000;
+    @Builder.Default
+    private boolean offloadBlockingWork = false;
+    @Builder.Default
+    private int blockingExecutorThreads = 16;
+    @Builder.Default
+    private int blockingExecutorQueueSize = 1024;
+    @Builder.Default
+    private PlacementMode placementMode = PlacementMode.CONSISTENT_HASH;
+    @Builder.Default
+    private int placementVirtualNodes = 128;
+    @Builder.Default
+    private Duration redirectHalfLife = Duration.ofSeconds(1);
+    @Builder.Default
+    private Duration defaultReadLatency = Duration.ofMillis(5);
+    @Builder.Default
+    private Duration repairInterval = Duration.ofSeconds(20);
+    @Builder.Default
+    private int repairMaxConcurrent = 8;
+    @Builder.Default
+    private int repairMaxPerNode = 2;
+    @Builder.Default
+    private int repairTargetCandidates = 3;
+    @Builder.Default
+    private double repairDocumentsPerSecond = 50000;
+    @Builder.Default
+    private double repairBurstDocuments = 500000;
+    @Builder.Default
+    private long copyChunkDocuments = 10000;
+    @Builder.Default
+    private int copyParallelRanges = 4;
+    @Builder.Default
+    private Duration copyRequestTimeout = Duration.ofMinutes(30);
+    @Builder.Default
+    private int copyCaptureMaxDocuments = 100000;
+    @Builder.Default
+    private int copyCatchUpRounds = 8;
+    @Builder.Default
+    private WriteConsistency defaultWriteConsistency = WriteConsistency.ALL;
+    @Builder.Default
+    private int hintedHandoffMaxDocuments = 100000;
+    @Builder.Default
+    private Duration hintedHandoffTtl = Duration.ofMinutes(10);
+    @Builder.Default
+    private Duration hintedHandoffInterval = Duration.ofSeconds(1);
+    @Builder.Default
+    private boolean proxyReads = false;
+    @Builder.Default
+    private double hedgePercentile = 0.95;
+    @Builder.Default
+    private int hedgeWindowSize = 1024;
+    @Builder.Default
+    private int hedgeMinSamples = 32;
+    @Builder.Default
+    private Duration hedgeDefaultDelay = Duration.ofMillis(50);
+    @Builder.Default
+    private Duration hedgeMinDelay = Duration.ofMillis(2);
+    @Builder.Default
+    private int listingMaxPageSize = 10000;
+    @Builder.Default
+    private int bulkDeleteMaxConcurrent = 16;
+}
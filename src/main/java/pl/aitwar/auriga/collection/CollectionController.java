@@ -1,5 +1,6 @@
 package pl.aitwar.auriga.collection;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.inject.Inject;
@@ -8,12 +9,20 @@ import io.javalin.Context;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import pl.aitwar.auriga.collection.listing.CollectionListing;
+import pl.aitwar.auriga.collection.listing.ListingPage;
+import pl.aitwar.auriga.collection.model.CollectionDescriptor;
+import pl.aitwar.auriga.collection.model.WriteConsistency;
 import pl.aitwar.auriga.collection.model.exceptions.CollectionBlockedException;
+import pl.aitwar.auriga.collection.model.exceptions.DocumentAllocationException;
 import pl.aitwar.auriga.collection.model.exceptions.UnknownCollectionException;
 import pl.aitwar.auriga.nodes.model.exceptions.NoFreeNodeException;
+import pl.aitwar.auriga.transport.model.exceptions.NodeBusyException;
+import pl.aitwar.auriga.utils.BackgroundExecutors;
 
-import java.io.IOException;
-import java.util.concurrent.TimeUnit;
+import java.io.ByteArrayInputStream;
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.*;
 
 @Singleton
 public class CollectionController {
@@ -21,24 +30,28 @@ public class CollectionController {
 
     private final CollectionService collectionService;
     private final ObjectMapper objectMapper;
+    private final DocumentReader documentReader;
+    private final Executor blockingExecutor;
+    private final boolean proxyReads;
+    private final int listingMaxPageSize;
 
     @Inject
-    public CollectionController(CollectionService collectionService, ObjectMapper objectMapper) {
+    public CollectionController(CollectionService collectionService, ObjectMapper objectMapper,
+                                DocumentReader documentReader, CollectionConfiguration configuration,
+                                BackgroundExecutors backgroundExecutors) {
         this.collectionService = collectionService;
         this.objectMapper = objectMapper;
+        this.documentReader = documentReader;
+        this.proxyReads = configuration.isProxyReads();
+        this.listingMaxPageSize = configuration.getListingMaxPageSize();
+        this.blockingExecutor = configuration.isOffloadBlockingWork()
+                ? backgroundExecutors.manage(new ThreadPoolExecutor(configuration.getBlockingExecutorThreads(),
+                configuration.getBlockingExecutorThreads(), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(configuration.getBlockingExecutorQueueSize())))
+                : null;
     }
 
     public void create(@NotNull Context context, @NotNull String collectionName) {
-        try {
-            objectMapper.readTree(context.body());
-        } catch (JsonProcessingException ex) {
-            context.status(400);
-        } catch (IOException e) {
-            context.status(500);
-        }
-
-        context.status(201);
-
         String replicationLevelParam = context.queryParam("replication");
         Integer replicationLevel = 1;
 
@@ -51,51 +64,245 @@ public class CollectionController {
             }
         }
 
-        collectionService.putDocument(collectionName, context.body(), replicationLevel)
-                .exceptionally(ex -> {
-                    if (ex.getCause() instanceof NoFreeNodeException) {
-                        context.status(503);
+        final Integer replication = replicationLevel;
+        final WriteConsistency consistency;
+
+        try {
+            final String consistencyParam = context.queryParam("consistency");
+            consistency = consistencyParam == null ? null : WriteConsistency.valueOf(consistencyParam.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            context.status(400);
+            return;
+        }
+
+        context.result(blocking(() -> documentReader.read(context.req.getInputStream()))
+                .thenCompose(document -> collectionService.putDocument(collectionName, document, replication, consistency))
+                .handle((nodes, ex) -> {
+                    if (ex != null) {
+                        context.status(statusOf(ex));
+                    } else {
+                        context.status(201);
                     }
-                    return null;
-                });
+                    return "";
+                }));
+    }
+
+    public void deleteAll(@NotNull Context context) {
+        final String prefix = context.queryParam("prefix");
+        if (prefix == null || prefix.isEmpty()) {
+            context.status(400);
+            return;
+        }
+
+        context.result(collectionService.deleteCollections(prefix)
+                .thenApply(this::toJson)
+                .handle((responseBody, ex) -> {
+                    if (ex != null) {
+                        context.status(statusOf(ex));
+                        return "";
+                    }
+
+                    context.status(200);
+                    return responseBody;
+                }));
+    }
+
+    public void updateAll(@NotNull Context context) {
+        final String prefix = context.queryParam("prefix");
+        final int replication;
+
+        try {
+            replication = Integer.parseInt(context.queryParam("replication"));
+        } catch (NumberFormatException e) {
+            context.status(400);
+            return;
+        }
+        if (prefix == null || prefix.isEmpty() || replication <= 0) {
+            context.status(400);
+            return;
+        }
+
+        context.result(blocking(() -> toJson(collectionService.setReplication(prefix, replication)))
+                .handle((responseBody, ex) -> {
+                    if (ex != null) {
+                        context.status(statusOf(ex));
+                        return "";
+                    }
+
+                    context.status(200);
+                    return responseBody;
+                }));
     }
 
     public void delete(@NotNull Context context, @NotNull String s) {
         throw new UnsupportedOperationException("Not implemented yet!");
     }
 
+    // Pages continue after the name given as cursor, the next one comes back in X-Next-Cursor
     public void getAll(@NotNull Context context) {
-        try {
-            String responseBody = objectMapper.writeValueAsString(collectionService.getCollections());
-            context.result(responseBody);
+        final String prefix = context.queryParam("prefix");
+        final String cursor = context.queryParam("cursor");
+        final String limitParam = context.queryParam("limit");
+        int limit = listingMaxPageSize;
+
+        if (limitParam != null) {
+            try {
+                limit = Math.min(Integer.parseInt(limitParam), listingMaxPageSize);
+            } catch (NumberFormatException e) {
+                context.status(400);
+                return;
+            }
+            if (limit <= 0) {
+                context.status(400);
+                return;
+            }
+        }
+
+        final CollectionListing.Listing listing = collectionService.getCollectionListing();
+        final String eTag = listing.getETag();
+        context.header("ETag", eTag);
+        if (matches(context.header("If-None-Match"), eTag)) {
+            context.status(304);
+            return;
+        }
+
+        context.contentType("application/json");
+        if (prefix == null && cursor == null && limitParam == null) {
             context.status(200);
-        } catch (JsonProcessingException e) {
-            // Eat it!
-            context.status(500);
+            context.result(new ByteArrayInputStream(listing.serialized()));
+            return;
+        }
+
+        final ListingPage page = listing.page(prefix, cursor, limit);
+        if (page.getNextCursor() != null) {
+            context.header("X-Next-Cursor", page.getNextCursor());
         }
+
+        context.result(blocking(() -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(context.res.getOutputStream())) {
+                // Javalin still owns the response and closes it once the result is written
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.writeStartArray();
+                for (CollectionDescriptor descriptor : page.getDescriptors()) {
+                    objectMapper.writeValue(generator, descriptor);
+                }
+                generator.writeEndArray();
+            }
+            return "";
+        }).handle((responseBody, ex) -> {
+            if (ex != null) {
+                context.status(statusOf(ex));
+            }
+            return "";
+        }));
     }
 
     public void getOne(@NotNull Context context, @NotNull String collectionName) {
-        try {
-            collectionService.getCollectionAddress(collectionName)
-                    .thenAccept(context::redirect)
-                    .exceptionally(exp -> {
-                        if (exp.getCause() instanceof UnknownCollectionException) {
-                            context.status(404);
-                        } else if (exp.getCause() instanceof CollectionBlockedException) {
-                            logger.warn("Collection '{}' is being fetched at the moment", collectionName);
-                            context.status(503);
-                        } else {
-                            context.status(500);
-                        }
-                        return null;
-                    }).get(60, TimeUnit.SECONDS);
-        } catch (Exception e) {
-            logger.error("Collection locating interrupted '{}'", e.getMessage());
+        if (proxyReads) {
+            proxy(context, collectionName);
+            return;
         }
+
+        context.result(collectionService.getCollectionAddress(collectionName)
+                .handle((address, ex) -> {
+                    if (ex == null) {
+                        context.header("Location", address);
+                        context.status(302);
+                        return "";
+                    }
+
+                    final int status = statusOf(ex);
+                    if (status == 503) {
+                        logger.debug("Collection '{}' is being fetched at the moment", collectionName);
+                    }
+                    context.status(status);
+                    return "";
+                }));
+    }
+
+    private void proxy(final Context context, final String collectionName) {
+        context.result(collectionService.readCollection(collectionName)
+                .handle((response, ex) -> {
+                    if (ex != null) {
+                        context.status(statusOf(ex));
+                        return new ByteArrayInputStream(new byte[0]);
+                    }
+
+                    context.status(response.statusCode());
+                    response.headers().firstValue("Content-Type").ifPresent(context::contentType);
+                    return response.body();
+                }));
     }
 
     public void update(@NotNull Context context, @NotNull String s) {
         throw new UnsupportedOperationException("Not implemented yet!");
     }
+
+    private <T> CompletableFuture<T> blocking(final Callable<T> work) {
+        if (blockingExecutor == null) {
+            try {
+                return CompletableFuture.completedFuture(work.call());
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            blockingExecutor.execute(() -> {
+                try {
+                    result.complete(work.call());
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private String toJson(final Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private static boolean matches(final String ifNoneMatch, final String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            final String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(eTag) || tag.equals("W/" + eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static int statusOf(final Throwable ex) {
+        Throwable cause = ex;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+
+        if (cause instanceof JsonProcessingException) {
+            return 400;
+        } else if (cause instanceof UnknownCollectionException) {
+            return 404;
+        } else if (cause instanceof DocumentAllocationException) {
+            return 502;
+        } else if (cause instanceof NoFreeNodeException || cause instanceof NodeBusyException
+                || cause instanceof CollectionBlockedException || cause instanceof RejectedExecutionException) {
+            return 503;
+        } else if (cause instanceof TimeoutException || cause instanceof HttpTimeoutException) {
+            return 504;
+        }
+
+        logger.error("Collection request failed '{}'", cause.getMessage());
+        return 500;
+    }
 }
@@ -0,0 +1,112 @@
+package pl.aitwar.auriga.collection;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.aitwar.auriga.collection.journal.FileCollectionJournal;
+import pl.aitwar.auriga.collection.model.CollectionDescriptor;
+import pl.aitwar.auriga.collection.snapshot.CollectionSnapshot;
+import pl.aitwar.auriga.collection.snapshot.CollectionSnapshotWriter;
+import pl.aitwar.auriga.utils.BackgroundExecutors;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Singleton
+public class CollectionDatabase {
+    private static final Logger logger = LoggerFactory.getLogger(CollectionDatabase.class);
+    private final CollectionMetadataStore metadataStore;
+    private final FileCollectionJournal journal;
+    private final ObjectMapper objectMapper;
+    private final CollectionConfiguration configuration;
+    private final Path snapshotPath;
+    private final Path temporaryPath;
+    private final Path legacySnapshotPath;
+    private final BackgroundExecutors backgroundExecutors;
+    private long lastCompaction = System.nanoTime();
+
+    @Inject
+    public CollectionDatabase(CollectionMetadataStore metadataStore, FileCollectionJournal journal,
+                              ObjectMapper objectMapper, CollectionConfiguration configuration,
+                              BackgroundExecutors backgroundExecutors) {
+        this.metadataStore = metadataStore;
+        this.backgroundExecutors = backgroundExecutors;
+        this.journal = journal;
+        this.objectMapper = objectMapper;
+        this.configuration = configuration;
+        this.snapshotPath = Paths.get(configuration.getSnapshotFile());
+        this.temporaryPath = Paths.get(configuration.getSnapshotFile() + ".tmp");
+        this.legacySnapshotPath = Paths.get(configuration.getLegacySnapshotFile());
+    }
+
+    public void load() {
+        boolean imported = false;
+
+        try {
+            if (Files.exists(snapshotPath)) {
+                logger.info("Mapping collection database from '{}' file", snapshotPath);
+                metadataStore.attach(CollectionSnapshot.open(snapshotPath, metadataStore.getNodeIds()));
+            } else if (Files.exists(legacySnapshotPath)) {
+                logger.info("Importing collection database from '{}' file", legacySnapshotPath);
+                metadataStore.load(objectMapper.readValue(legacySnapshotPath.toFile(), new TypeReference<Map<String, CollectionDescriptor>>() {
+                }));
+                imported = true;
+            }
+        } catch (IOException e) {
+            logger.error("Failed to read collection database", e);
+            throw new UncheckedIOException(e);
+        }
+
+        try {
+            journal.open(metadataStore::restore);
+        } catch (IOException e) {
+            logger.error("Failed to open collection journal", e);
+            throw new UncheckedIOException(e);
+        }
+
+        if (imported) {
+            compact();
+        }
+
+        ScheduledExecutorService ex = backgroundExecutors.newScheduler();
+        ex.scheduleWithFixedDelay(this::compactIfNeeded, 10, 10, TimeUnit.SECONDS);
+    }
+
+    public synchronized void compact() {
+        logger.info("Compacting collection database into '{}' file", snapshotPath);
+        try {
+            metadataStore.withoutMutations(journal::rotate).get(configuration.getJournalRotationTimeout().toMillis(), TimeUnit.MILLISECONDS);
+
+            final List<CollectionDescriptor> descriptors = new ArrayList<>();
+            metadataStore.forEach(descriptors::add);
+            CollectionSnapshotWriter.write(temporaryPath, descriptors);
+
+            Files.move(temporaryPath, snapshotPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            journal.dropRotated();
+            lastCompaction = System.nanoTime();
+        } catch (Exception e) {
+            logger.error("Failed to compact collection database", e);
+        }
+    }
+
+    private void compactIfNeeded() {
+        final long size = journal.size();
+        final boolean intervalPassed = System.nanoTime() - lastCompaction > configuration.getCompactionInterval().toNanos();
+
+        if (size >= configuration.getCompactionJournalSize() || (intervalPassed && size > 0)) {
+            compact();
+        }
+    }
+}
@@ -0,0 +1,385 @@
+package pl.aitwar.auriga.collection;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.jetbrains.annotations.NotNull;
+import pl.aitwar.auriga.collection.journal.CollectionJournal;
+import pl.aitwar.auriga.collection.journal.JournalEntry;
+import pl.aitwar.auriga.collection.journal.JournalOperation;
+import pl.aitwar.auriga.collection.model.CollectionDescriptor;
+import pl.aitwar.auriga.collection.model.NodeIds;
+import pl.aitwar.auriga.collection.model.exceptions.CollectionAlreadyExistsException;
+import pl.aitwar.auriga.collection.snapshot.CollectionSnapshot;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+// Reads never lock; mutations are serialized per entry and journaled while holding it, so the journal keeps their order
+@Singleton
+public class CollectionMetadataStore {
+    private final ConcurrentHashMap<String, CollectionDescriptor> descriptors = new ConcurrentHashMap<>();
+    private final Set<String> removed = ConcurrentHashMap.newKeySet();
+    private final ReplicaIndex index = new ReplicaIndex();
+    private final ConcurrentSkipListSet<String> names = new ConcurrentSkipListSet<>();
+    private final AtomicLong version = new AtomicLong();
+    private final ReentrantReadWriteLock gate = new ReentrantReadWriteLock();
+    private final CollectionJournal journal;
+    private final NodeIds nodeIds;
+    private volatile CollectionSnapshot snapshot;
+    private volatile boolean materialized = true;
+
+    @Inject
+    public CollectionMetadataStore(CollectionJournal journal, NodeIds nodeIds) {
+        this.journal = journal;
+        this.nodeIds = nodeIds;
+    }
+
+    public CollectionMetadataStore(CollectionJournal journal) {
+        this(journal, new NodeIds());
+    }
+
+    // Shared by every descriptor of the store and by the snapshot attached to it
+    public NodeIds getNodeIds() {
+        return nodeIds;
+    }
+
+    @NotNull
+    public Optional<CollectionDescriptor> get(final String collectionName) {
+        final CollectionDescriptor descriptor = descriptors.get(collectionName);
+
+        if (descriptor != null || materialized) {
+            return Optional.ofNullable(descriptor);
+        }
+
+        return Optional.ofNullable(descriptors.computeIfAbsent(collectionName, this::materialize));
+    }
+
+    // Same as get, but leaves collections of the attached snapshot undecoded
+    @NotNull
+    public Optional<CollectionDescriptor> peek(final String collectionName) {
+        final CollectionDescriptor descriptor = descriptors.get(collectionName);
+        return Optional.ofNullable(descriptor != null || materialized ? descriptor : materialize(collectionName));
+    }
+
+    public boolean contains(final String collectionName) {
+        return get(collectionName).isPresent();
+    }
+
+    @NotNull
+    public Collection<CollectionDescriptor> getAll() {
+        materializeAll();
+        return Collections.unmodifiableCollection(descriptors.values());
+    }
+
+    @NotNull
+    public Map<String, CollectionDescriptor> asMap() {
+        materializeAll();
+        return Collections.unmodifiableMap(descriptors);
+    }
+
+    // Leaves collections of the attached snapshot undecoded
+    public void forEach(final Consumer<CollectionDescriptor> consumer) {
+        final CollectionSnapshot attached = snapshot;
+        if (materialized || attached == null) {
+            descriptors.values().forEach(consumer);
+            return;
+        }
+
+        for (int i = 0; i < attached.size(); i++) {
+            final String name = attached.nameAt(i);
+            final CollectionDescriptor descriptor = descriptors.get(name);
+
+            if (descriptor != null) {
+                consumer.accept(descriptor);
+            } else if (!removed.contains(name)) {
+                consumer.accept(attached.descriptorAt(i));
+            }
+        }
+
+        descriptors.forEach((name, descriptor) -> {
+            if (attached.indexOf(name) < 0) {
+                consumer.accept(descriptor);
+            }
+        });
+    }
+
+    // Bumped once a change is visible
+    public long getVersion() {
+        return version.get();
+    }
+
+    @NotNull
+    public NavigableSet<String> getNames() {
+        return Collections.unmodifiableNavigableSet(names);
+    }
+
+    @NotNull
+    public NavigableSet<String> getNames(final String prefix) {
+        final String end = prefixEnd(prefix);
+        return Collections.unmodifiableNavigableSet(end == null
+                ? names.tailSet(prefix, true)
+                : names.subSet(prefix, true, end, false));
+    }
+
+    @NotNull
+    public Set<String> getCollectionsOn(final String nodeName) {
+        return index.collectionsOn(nodeName);
+    }
+
+    @NotNull
+    public Set<String> getUnderReplicated() {
+        return index.underReplicated();
+    }
+
+    @NotNull
+    public CollectionDescriptor create(final String collectionName, final int replication) throws CollectionAlreadyExistsException {
+        final CollectionDescriptor descriptor = newDescriptor(collectionName, replication);
+
+        if (getOrCreate(collectionName, descriptor) != descriptor) {
+            throw new CollectionAlreadyExistsException(collectionName);
+        }
+        return descriptor;
+    }
+
+    @NotNull
+    public CollectionDescriptor getOrCreate(final String collectionName, final int replication) {
+        final CollectionDescriptor existing = get(collectionName).orElse(null);
+        if (existing != null) {
+            return existing;
+        }
+
+        return getOrCreate(collectionName, newDescriptor(collectionName, replication));
+    }
+
+    @NotNull
+    public Optional<CollectionDescriptor> addReplica(final String collectionName, final String nodeName) {
+        Objects.requireNonNull(nodeName);
+        return update(collectionName, JournalOperation.REPLICA_ADD, descriptor -> descriptor.withNode(nodeName));
+    }
+
+    @NotNull
+    public Optional<CollectionDescriptor> removeReplica(final String collectionName, final String nodeName) {
+        Objects.requireNonNull(nodeName);
+        return update(collectionName, JournalOperation.REPLICA_REMOVE, descriptor -> descriptor.withoutNode(nodeName));
+    }
+
+    @NotNull
+    public Optional<CollectionDescriptor> setBlocked(final String collectionName, final boolean blocked) {
+        return update(collectionName, blocked ? JournalOperation.BLOCK : JournalOperation.UNBLOCK,
+                descriptor -> descriptor.withBlocked(blocked));
+    }
+
+    @NotNull
+    public Optional<CollectionDescriptor> setTargetReplication(final String collectionName, final int replication) {
+        if (replication <= 0) {
+            throw new IllegalArgumentException("Replication level must be greater or equal to 1");
+        }
+        return update(collectionName, JournalOperation.RETARGET, descriptor -> replication < descriptor.getCurrentReplicationLevel()
+                ? descriptor
+                : descriptor.withTargetReplicationLevel(replication));
+    }
+
+    @NotNull
+    public Optional<CollectionDescriptor> remove(final String collectionName) {
+        Objects.requireNonNull(collectionName);
+
+        final CollectionDescriptor[] previous = new CollectionDescriptor[1];
+        final Lock mutation = gate.readLock();
+        mutation.lock();
+        try {
+            descriptors.compute(collectionName, (name, descriptor) -> {
+                previous[0] = current(name, descriptor);
+                if (previous[0] != null) {
+                    journal.append(new JournalEntry(JournalOperation.DELETE, name, null));
+                    removed.add(name);
+                    names.remove(name);
+                    index.update(name, previous[0], null);
+                }
+                return null;
+            });
+        } finally {
+            mutation.unlock();
+        }
+
+        if (previous[0] != null) {
+            version.incrementAndGet();
+        }
+        return Optional.ofNullable(previous[0]);
+    }
+
+    // Runs the action while no mutation is in flight, so every change journaled before it is already visible
+    public <T> T withoutMutations(final Supplier<T> action) {
+        final Lock exclusive = gate.writeLock();
+        exclusive.lock();
+        try {
+            return action.get();
+        } finally {
+            exclusive.unlock();
+        }
+    }
+
+    public void load(final Map<String, CollectionDescriptor> loaded) {
+        loaded.forEach((name, loadedDescriptor) -> {
+            final CollectionDescriptor descriptor = loadedDescriptor.withNodeIds(nodeIds);
+            names.add(name);
+            index.update(name, descriptors.put(name, descriptor), descriptor);
+        });
+        version.incrementAndGet();
+    }
+
+    public void attach(final CollectionSnapshot attached) {
+        attached.forEachRecord((name, target, current, replicas) -> {
+            names.add(name);
+            index.add(name, target, current, replicas);
+        });
+        snapshot = attached;
+        materialized = attached.size() == 0;
+        version.incrementAndGet();
+    }
+
+    public void restore(final JournalEntry entry) {
+        descriptors.compute(entry.getName(), (name, descriptor) -> {
+            final CollectionDescriptor previous = current(name, descriptor);
+
+            if (entry.getOperation() == JournalOperation.DELETE) {
+                removed.add(name);
+                names.remove(name);
+                index.update(name, previous, null);
+                return null;
+            }
+
+            final CollectionDescriptor restored = entry.getDescriptor().withNodeIds(nodeIds);
+            removed.remove(name);
+            names.add(name);
+            index.update(name, previous, restored);
+            return restored;
+        });
+        version.incrementAndGet();
+    }
+
+    private CollectionDescriptor getOrCreate(final String collectionName, final CollectionDescriptor created) {
+        final CollectionDescriptor result;
+        final Lock mutation = gate.readLock();
+        mutation.lock();
+        try {
+            result = descriptors.compute(collectionName, (name, descriptor) -> {
+                final CollectionDescriptor existing = current(name, descriptor);
+                if (existing != null) {
+                    return existing;
+                }
+
+                journaled(JournalOperation.CREATE, created);
+                removed.remove(name);
+                names.add(name);
+                index.update(name, null, created);
+                return created;
+            });
+        } finally {
+            mutation.unlock();
+        }
+
+        if (result == created) {
+            version.incrementAndGet();
+        }
+        return result;
+    }
+
+    private Optional<CollectionDescriptor> update(final String collectionName, final JournalOperation operation,
+                                                  final UnaryOperator<CollectionDescriptor> mutation) {
+        Objects.requireNonNull(collectionName);
+
+        final boolean[] changed = new boolean[1];
+        final CollectionDescriptor result;
+        final Lock gated = gate.readLock();
+        gated.lock();
+        try {
+            result = descriptors.compute(collectionName, (name, descriptor) -> {
+                final CollectionDescriptor existing = current(name, descriptor);
+                if (existing == null) {
+                    return null;
+                }
+
+                final CollectionDescriptor updated = mutation.apply(existing);
+                if (updated == existing) {
+                    return existing;
+                }
+
+                journaled(operation, updated);
+                changed[0] = true;
+                index.update(name, existing, updated);
+                return updated;
+            });
+        } finally {
+            gated.unlock();
+        }
+
+        if (changed[0]) {
+            version.incrementAndGet();
+        }
+        return Optional.ofNullable(result);
+    }
+
+    private CollectionDescriptor current(final String collectionName, final CollectionDescriptor descriptor) {
+        return descriptor != null || materialized ? descriptor : materialize(collectionName);
+    }
+
+    private CollectionDescriptor materialize(final String collectionName) {
+        final CollectionSnapshot attached = snapshot;
+        if (attached == null || removed.contains(collectionName)) {
+            return null;
+        }
+
+        return attached.find(collectionName);
+    }
+
+    private void materializeAll() {
+        final CollectionSnapshot attached = snapshot;
+        if (materialized || attached == null) {
+            return;
+        }
+
+        for (int i = 0; i < attached.size(); i++) {
+            get(attached.nameAt(i));
+        }
+        materialized = true;
+    }
+
+    // First string after every one starting with the prefix, null when there is none
+    private static String prefixEnd(final String prefix) {
+        for (int i = prefix.length() - 1; i >= 0; i--) {
+            final char last = prefix.charAt(i);
+            if (last != Character.MAX_VALUE) {
+                return prefix.substring(0, i) + (char) (last + 1);
+            }
+        }
+        return null;
+    }
+
+    private CollectionDescriptor journaled(final JournalOperation operation, final CollectionDescriptor descriptor) {
+        journal.append(new JournalEntry(operation, descriptor.getName(), descriptor));
+        return descriptor;
+    }
+
+    private CollectionDescriptor newDescriptor(final String collectionName, final int replication) {
+        Objects.requireNonNull(collectionName);
+
+        if (replication <= 0) {
+            throw new IllegalArgumentException("Replication level must be greater or equal to 1");
+        }
+
+        return CollectionDescriptor
+                .builder()
+                .name(collectionName)
+                .currentReplicationLevel(0)
+                .targetReplicationLevel(replication)
+                .nodeIds(nodeIds)
+                .build();
+    }
+}
@@ -1,14 +1,57 @@
 package pl.aitwar.auriga.collection;
 
 import com.google.inject.AbstractModule;
+import com.google.inject.Provider;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
 import com.google.inject.multibindings.Multibinder;
+import pl.aitwar.auriga.collection.copy.CollectionTransfer;
+import pl.aitwar.auriga.collection.copy.PendingReplicas;
+import pl.aitwar.auriga.collection.journal.CollectionJournal;
+import pl.aitwar.auriga.collection.journal.FileCollectionJournal;
+import pl.aitwar.auriga.collection.placement.ConsistentHashPlacement;
+import pl.aitwar.auriga.collection.placement.LeastLoadedPlacement;
+import pl.aitwar.auriga.collection.placement.PlacementStrategy;
+import pl.aitwar.auriga.collection.model.NodeIds;
+import pl.aitwar.auriga.collection.repair.RepairScheduler;
+import pl.aitwar.auriga.collection.routing.ProxyReader;
+import pl.aitwar.auriga.collection.routing.ReadRouter;
+import pl.aitwar.auriga.collection.write.HintedHandoff;
+import pl.aitwar.auriga.collection.write.NodeWritePipeline;
 import pl.aitwar.auriga.utils.Routing;
 
 public class CollectionModule extends AbstractModule {
     @Override
     protected void configure() {
         bind(CollectionController.class);
+        bind(CollectionConfiguration.class).toInstance(CollectionConfiguration.builder().build());
+        bind(CollectionJournal.class).to(FileCollectionJournal.class);
+        bind(NodeIds.class);
+        bind(CollectionMetadataStore.class);
+        bind(CollectionDatabase.class);
+        bind(NodeWritePipeline.class);
+        bind(HintedHandoff.class);
+        bind(DocumentReader.class);
+        bind(CollectionTransfer.class);
+        bind(PendingReplicas.class);
+        bind(ReadRouter.class);
+        bind(ProxyReader.class);
+        bind(RepairScheduler.class);
         bind(CollectionService.class);
         Multibinder.newSetBinder(binder(), Routing.class).addBinding().to(CollectionRouting.class);
     }
+
+    @Provides
+    @Singleton
+    PlacementStrategy placementStrategy(CollectionConfiguration configuration,
+                                        Provider<ConsistentHashPlacement> consistentHash,
+                                        Provider<LeastLoadedPlacement> leastLoaded) {
+        switch (configuration.getPlacementMode()) {
+            case LEAST_LOADED:
+                return leastLoaded.get();
+            case CONSISTENT_HASH:
+            default:
+                return consistentHash.get();
+        }
+    }
 }
@@ -5,8 +5,10 @@ import com.google.inject.Singleton;
 import io.javalin.Javalin;
 import pl.aitwar.auriga.utils.Routing;
 
+import static io.javalin.apibuilder.ApiBuilder.delete;
 import static io.javalin.apibuilder.ApiBuilder.get;
 import static io.javalin.apibuilder.ApiBuilder.post;
+import static io.javalin.apibuilder.ApiBuilder.put;
 
 @Singleton
 public class CollectionRouting extends Routing<CollectionController> {
@@ -21,6 +23,8 @@ public class CollectionRouting extends Routing<CollectionController> {
     public void bindRoutes() {
         javalin.routes(() -> {
             get("collections", ctx -> getController().getAll(ctx));
+            put("collections", ctx -> getController().updateAll(ctx));
+            delete("collections", ctx -> getController().deleteAll(ctx));
             get("collections/:collection-name", ctx -> getController().getOne(ctx, ctx.pathParam("collection-name")));
             post("collections/:collection-name", ctx -> getController().create(ctx, ctx.pathParam("collection-name")));
         });
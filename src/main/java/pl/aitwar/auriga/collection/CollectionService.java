@@ -1,187 +1,300 @@
 package pl.aitwar.auriga.collection;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import pl.aitwar.auriga.collection.model.CollectionCopyRequest;
 import pl.aitwar.auriga.collection.model.CollectionDescriptor;
+import pl.aitwar.auriga.collection.model.DocumentPayload;
+import pl.aitwar.auriga.collection.model.WriteConsistency;
 import pl.aitwar.auriga.collection.model.exceptions.CollectionAlreadyExistsException;
 import pl.aitwar.auriga.collection.model.exceptions.CollectionBlockedException;
-import pl.aitwar.auriga.collection.model.exceptions.DocumentAllocationException;
+import pl.aitwar.auriga.collection.model.exceptions.CollectionCopyException;
 import pl.aitwar.auriga.collection.model.exceptions.UnknownCollectionException;
+import pl.aitwar.auriga.collection.copy.CollectionTransfer;
+import pl.aitwar.auriga.collection.copy.PendingReplicas;
+import pl.aitwar.auriga.collection.copy.WriteCapture;
+import pl.aitwar.auriga.collection.listing.CollectionListing;
+import pl.aitwar.auriga.collection.placement.PlacementStrategy;
+import pl.aitwar.auriga.collection.repair.RepairScheduler;
+import pl.aitwar.auriga.collection.routing.ProxyReader;
+import pl.aitwar.auriga.collection.routing.ReadRouter;
+import pl.aitwar.auriga.collection.write.HintedHandoff;
+import pl.aitwar.auriga.collection.write.NodeWritePipeline;
+import pl.aitwar.auriga.collection.write.WriteQuorum;
 import pl.aitwar.auriga.nodes.NodesService;
 import pl.aitwar.auriga.nodes.model.Node;
-import pl.aitwar.auriga.nodes.model.NodeUsageMetric;
-import pl.aitwar.auriga.utils.eventbus.Event;
-import pl.aitwar.auriga.utils.eventbus.EventBus;
-
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.net.URI;
-import java.net.http.HttpClient;
+import pl.aitwar.auriga.nodes.model.exceptions.NoFreeNodeException;
+import pl.aitwar.auriga.nodes.model.exceptions.UnknownNodeException;
+import pl.aitwar.auriga.transport.NodeTransport;
+import pl.aitwar.auriga.transport.model.NodeOperation;
+
+import java.io.InputStream;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
-import java.util.function.Predicate;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 @Singleton
 public class CollectionService {
     private static final Logger logger = LoggerFactory.getLogger(NodesService.class);
     private final NodesService nodesService;
-    private final EventBus eventBus;
     private final ObjectMapper objectMapper;
-    private Map<String, CollectionDescriptor> collectionDescriptors = new HashMap<>();
+    private final NodeTransport nodeTransport;
+    private final CollectionMetadataStore metadataStore;
+    private final CollectionDatabase collectionDatabase;
+    private final NodeWritePipeline nodeWritePipeline;
+    private final PlacementStrategy placementStrategy;
+    private final ReadRouter readRouter;
+    private final ProxyReader proxyReader;
+    private final RepairScheduler repairScheduler;
+    private final CollectionTransfer collectionTransfer;
+    private final PendingReplicas pendingReplicas;
+    private final HintedHandoff hintedHandoff;
+    private final CollectionListing collectionListing;
+    private final WriteConsistency defaultWriteConsistency;
+    private final int bulkDeleteMaxConcurrent;
 
     @Inject
-    public CollectionService(NodesService nodesService, EventBus eventBus, ObjectMapper objectMapper) {
+    public CollectionService(NodesService nodesService, ObjectMapper objectMapper,
+                             NodeTransport nodeTransport, CollectionMetadataStore metadataStore,
+                             CollectionDatabase collectionDatabase, NodeWritePipeline nodeWritePipeline,
+                             PlacementStrategy placementStrategy, ReadRouter readRouter, ProxyReader proxyReader,
+                             RepairScheduler repairScheduler, CollectionTransfer collectionTransfer,
+                             PendingReplicas pendingReplicas, HintedHandoff hintedHandoff,
+                             CollectionListing collectionListing, CollectionConfiguration configuration) {
         this.nodesService = nodesService;
-        this.eventBus = eventBus;
         this.objectMapper = objectMapper;
+        this.nodeTransport = nodeTransport;
+        this.metadataStore = metadataStore;
+        this.collectionDatabase = collectionDatabase;
+        this.nodeWritePipeline = nodeWritePipeline;
+        this.placementStrategy = placementStrategy;
+        this.readRouter = readRouter;
+        this.proxyReader = proxyReader;
+        this.repairScheduler = repairScheduler;
+        this.collectionTransfer = collectionTransfer;
+        this.pendingReplicas = pendingReplicas;
+        this.hintedHandoff = hintedHandoff;
+        this.collectionListing = collectionListing;
+        this.defaultWriteConsistency = configuration.getDefaultWriteConsistency();
+        this.bulkDeleteMaxConcurrent = configuration.getBulkDeleteMaxConcurrent();
 
         setUp();
     }
 
     public Collection<CollectionDescriptor> getCollections() {
-        return collectionDescriptors.values();
+        return metadataStore.getAll();
+    }
+
+    @NotNull
+    public CollectionListing.Listing getCollectionListing() {
+        return collectionListing.current();
     }
 
     public void createCollection(final String collectionName, final int replication) throws CollectionAlreadyExistsException {
         logger.info("Creating collection '{}' with replication level '{}'", collectionName, replication);
         Objects.requireNonNull(collectionName);
 
-        if (replication <= 0) {
-            throw new IllegalArgumentException("Replication level must be greater or equal to 1");
-        }
-
-        if (collectionDescriptors.containsKey(collectionName)) {
+        try {
+            metadataStore.create(collectionName, replication);
+        } catch (CollectionAlreadyExistsException e) {
             logger.warn("Collection '{}' already exists", collectionName);
-            throw new CollectionAlreadyExistsException(collectionName);
+            throw e;
         }
+    }
 
-        CollectionDescriptor descriptor = CollectionDescriptor
-                .builder()
-                .name(collectionName)
-                .currentReplicationLevel(0)
-                .containingNodesNames(new HashSet<>())
-                .targetReplicationLevel(replication)
-                .build();
+    @NotNull
+    public CompletableFuture<Set<String>> putDocument(final String collectionName, final String document, Integer replication) {
+        Objects.requireNonNull(document);
+        return putDocument(collectionName, DocumentPayload.of(document), replication, null);
+    }
 
-        collectionDescriptors.put(collectionName, descriptor);
+    // Takes over the reference to the payload
+    @NotNull
+    public CompletableFuture<Set<String>> putDocument(final String collectionName, final DocumentPayload document, Integer replication,
+                                                      WriteConsistency consistency) {
+        Objects.requireNonNull(document);
+        final WriteConsistency level = consistency != null ? consistency : defaultWriteConsistency;
+        return putDocumentInNodes(collectionName, document, replication, level)
+                .whenComplete((nodes, ex) -> document.release());
     }
 
     @NotNull
-    public CompletableFuture<Set<String>> putDocument(final String collectionName, final String document, Integer replication) {
-        logger.info("Putting document in collection '{}'", collectionName);
+    private CompletableFuture<Set<String>> putDocumentInNodes(final String collectionName, final DocumentPayload document, Integer replication,
+                                                              WriteConsistency consistency) {
+        logger.debug("Putting document in collection '{}'", collectionName);
         Objects.requireNonNull(collectionName);
-        Objects.requireNonNull(document);
 
-        if (!collectionDescriptors.containsKey(collectionName)) {
-            logger.warn("Collection '{}' not found", collectionName);
+        return pendingReplicas.admit(collectionName).thenCompose(admitted -> {
             try {
-                createCollection(collectionName, replication);
-            } catch (CollectionAlreadyExistsException e) {
-                // Eat it!
+                return putDocumentInChosenNodes(collectionName, document, replication, consistency);
+            } catch (RuntimeException e) {
+                pendingReplicas.chosen(collectionName, Set.of());
+                throw e;
             }
+        });
+    }
+
+    @NotNull
+    private CompletableFuture<Set<String>> putDocumentInChosenNodes(final String collectionName, final DocumentPayload document,
+                                                                    Integer replication, WriteConsistency consistency) {
+        if (!metadataStore.contains(collectionName)) {
+            logger.debug("Collection '{}' not found", collectionName);
         }
 
-        final CollectionDescriptor descriptor = collectionDescriptors.get(collectionName);
+        final CollectionDescriptor descriptor = metadataStore.getOrCreate(collectionName, replication);
         final Set<Node> containingNodes = descriptor.getContainingNodesNames()
                 .stream()
                 .map(nodesService::getNode)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toSet());
 
         if (containingNodes.isEmpty()) {
-            logger.info("Putting collection '{}' in first free node", collectionName);
+            logger.debug("Placing collection '{}' on new nodes", collectionName);
+
+            return placementStrategy.place(collectionName, descriptor.getTargetReplicationLevel(), null)
+                    .handle((nodeNames, ex) -> {
+                        if (ex != null) {
+                            pendingReplicas.chosen(collectionName, Set.of());
+                            return CompletableFuture.<Set<String>>failedFuture(ex);
+                        }
+                        return putDocumentInReplicas(collectionName, document, nodeNames.stream()
+                                .map(nodesService::getNode)
+                                .filter(Objects::nonNull)
+                                .collect(Collectors.toSet()), consistency, false);
+                    })
+                    .thenCompose(written -> written);
+        }
+
+        logger.debug("Putting collection '{}' in all containing nodes", collectionName);
+        return putDocumentInReplicas(collectionName, document, containingNodes, consistency, true);
+    }
 
-            return nodesService.getFreeNode(null)
-                    .thenCompose(nodeUsageMetric -> putDocumentInNode(nodesService.getNode(nodeUsageMetric.getName()), collectionName, document))
-                    .thenApply(Set::of);
+    @NotNull
+    private CompletableFuture<Set<String>> putDocumentInReplicas(final String collectionName, final DocumentPayload document,
+                                                                 final Set<Node> nodes, final WriteConsistency consistency,
+                                                                 final boolean existingReplicas) {
+        if (nodes.isEmpty()) {
+            pendingReplicas.chosen(collectionName, Set.of());
+            return CompletableFuture.failedFuture(new NoFreeNodeException());
         }
 
-        logger.info("Putting collection '{}' in all containing nodes", collectionName);
+        pendingReplicas.of(collectionName)
+                .stream()
+                .filter(capture -> nodes.stream().noneMatch(node -> node.getName().equals(capture.getNodeName())))
+                .forEach(capture -> capture.record(document));
+        pendingReplicas.chosen(collectionName, nodes.stream().map(Node::getName).collect(Collectors.toList()));
 
-        final CompletableFuture[] nodesFutures = containingNodes
+        final Map<String, CompletableFuture<String>> writes = new HashMap<>();
+        nodes.forEach(node -> writes.put(node.getName(), putDocumentInNode(node, collectionName, document, !existingReplicas)));
+
+        final CompletableFuture<Set<String>> acknowledged = WriteQuorum.await(writes, consistency.required(nodes.size()));
+
+        // Hints need the document after the caller let go of it
+        document.retain();
+        final CompletableFuture<Void> finished = CompletableFuture.allOf(writes.values().toArray(new CompletableFuture[0]))
+                .handle((nothing, ex) -> null);
+        final CompletableFuture[] settled = writes.entrySet()
                 .stream()
-                .map(node -> putDocumentInNode(node, collectionName, document))
+                .map(write -> write.getValue()
+                        .handle((nodeName, ex) -> Optional.ofNullable(ex))
+                        .thenCombine(finished, (failure, nothing) -> failure)
+                        .thenAccept(failure -> failure
+                                .filter(ex -> existingReplicas)
+                                .ifPresent(ex -> repairMissedWrite(ex, write.getKey(), writes, collectionName, document)))
+                        .whenComplete((nothing, ex) -> pendingReplicas.settled(collectionName, write.getKey())))
                 .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(settled).whenComplete((nothing, ex) -> document.release());
 
-        return CompletableFuture.allOf(nodesFutures)
-                .thenApply(future -> Arrays.stream(nodesFutures).map(CompletableFuture<String>::join).collect(Collectors.toSet()));
+        return acknowledged;
+    }
+
+    private void repairMissedWrite(final Throwable writeFailure, final String nodeName,
+                                   final Map<String, CompletableFuture<String>> writes, final String collectionName,
+                                   final DocumentPayload document) {
+        final boolean storedElsewhere = writes.values().stream().anyMatch(write -> !write.isCompletedExceptionally());
+
+        if (HintedHandoff.isRejected(writeFailure)) {
+            // Nothing to hint when no replica has the document either
+            if (storedElsewhere) {
+                logger.warn("Node '{}' missed a write to collection '{}', keeping a hint", nodeName, collectionName);
+                hintedHandoff.hint(nodeName, collectionName, document);
+            }
+            return;
+        }
+
+        // Without a single replica known to hold or to miss the document there is none better to keep
+        final boolean settledElsewhere = writes.values().stream()
+                .anyMatch(write -> write.handle((name, ex) -> ex == null || HintedHandoff.isRejected(ex)).join());
+        if (!settledElsewhere) {
+            logger.warn("Write to collection '{}' may not have been stored by any replica", collectionName);
+            return;
+        }
+
+        // Replaying a write the node may have stored would append the document twice, copy the replica anew
+        logger.warn("Write to collection '{}' on node '{}' may not have been stored, dropping replica", collectionName, nodeName);
+        metadataStore.removeReplica(collectionName, nodeName);
     }
 
     @NotNull
     public CompletableFuture<String> getCollectionAddress(final String collectionName) {
-        if (!collectionDescriptors.containsKey(collectionName)) {
+        return routableReplicasOf(collectionName)
+                .thenApply(replicas -> readRouter.route(replicas).orElseThrow())
+                .thenApply(node -> "http://" + node.getAddress() + "/collections/" + collectionName);
+    }
+
+    // The caller closes the body of the response
+    @NotNull
+    public CompletableFuture<HttpResponse<InputStream>> readCollection(final String collectionName) {
+        return routableReplicasOf(collectionName)
+                .thenCompose(replicas -> proxyReader.read(collectionName, replicas));
+    }
+
+    @NotNull
+    private CompletableFuture<List<Node>> routableReplicasOf(final String collectionName) {
+        final CollectionDescriptor descriptor = metadataStore.get(collectionName).orElse(null);
+        if (descriptor == null) {
             return CompletableFuture.failedFuture(new UnknownCollectionException(collectionName));
         }
 
-        final CollectionDescriptor descriptor = collectionDescriptors.get(collectionName);
         if (descriptor.isBlocked()) {
             return CompletableFuture.failedFuture(new CollectionBlockedException(collectionName));
         }
 
-        final Set<String> nodesNames = descriptor.getContainingNodesNames();
-
-        @SuppressWarnings("unchecked") final CompletableFuture<NodeUsageMetric>[] futures = nodesNames
+        final List<Node> replicas = descriptor.getContainingNodesNames()
                 .stream()
-                .map(nodesService::getNodeUsage)
-                .distinct()
-                .toArray(CompletableFuture[]::new);
+                .map(nodesService::getNode)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
 
-        return CompletableFuture.allOf(futures)
-                .thenApply(future -> Arrays.stream(futures).map(CompletableFuture::join).collect(Collectors.toSet()))
-                .thenApply(results -> results.stream().min(Comparator.comparingDouble(NodeUsageMetric::getLoad)))
-                .thenCompose(candidate -> candidate
-                        .map(NodeUsageMetric::getAddress)
-                        .map(address -> "http://" + address + "/collections/" + collectionName)
-                        .map(CompletableFuture::completedFuture)
-                        .orElseGet(() -> CompletableFuture.failedFuture(new UnknownCollectionException(collectionName)))
-                );
+        if (replicas.isEmpty()) {
+            return CompletableFuture.failedFuture(new UnknownCollectionException(collectionName));
+        }
+        return CompletableFuture.completedFuture(replicas);
     }
 
+    // Only placement adds replicas, a write must not bring back a replica dropped meanwhile
     @NotNull
-    private CompletableFuture<String> putDocumentInNode(final Node node, final String collectionName, final String document) {
-        logger.info("Putting document of collection '{}' in node '{}'", collectionName, node.getName());
+    private CompletableFuture<String> putDocumentInNode(final Node node, final String collectionName, final DocumentPayload document,
+                                                        final boolean placing) {
+        logger.debug("Putting document of collection '{}' in node '{}'", collectionName, node.getName());
         Objects.requireNonNull(node);
         Objects.requireNonNull(collectionName);
         Objects.requireNonNull(document);
 
-        final String address = node.getAddress();
         final String nodeName = node.getName();
 
-        HttpClient client = HttpClient.newBuilder()
-                .build();
-
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create("http://" + address + "/collections/" + collectionName))
-                .POST(HttpRequest.BodyPublishers.ofString(document))
-                .build();
-
-        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
-                .thenCompose(response -> {
-                    if (response.statusCode() != 201) {
-                        return CompletableFuture.failedFuture(new DocumentAllocationException(collectionName, nodeName));
-                    }
-
-                    return CompletableFuture.completedFuture(nodeName);
-                }).thenApply(stub -> {
-                    CollectionDescriptor descriptor = collectionDescriptors.get(collectionName);
-                    if (!descriptor.getContainingNodesNames().contains(nodeName)) {
-                        descriptor.setCurrentReplicationLevel(descriptor.getCurrentReplicationLevel() + 1);
-                        descriptor.getContainingNodesNames().add(nodeName);
+        return nodeWritePipeline.write(node, collectionName, document)
+                .thenApply(nothing -> {
+                    if (placing) {
+                        metadataStore.addReplica(collectionName, nodeName);
                     }
-                    return stub;
+                    return nodeName;
                 });
     }
 
@@ -190,13 +303,16 @@ public class CollectionService {
         logger.info("Deleting collection '{}'", collectionName);
         Objects.requireNonNull(collectionName);
 
-        if (!collectionDescriptors.containsKey(collectionName)) {
+        final CollectionDescriptor descriptor = metadataStore.get(collectionName).orElse(null);
+        if (descriptor == null) {
             logger.warn("Collection '{}' not found", collectionName);
+            return CompletableFuture.failedFuture(new UnknownCollectionException(collectionName));
         }
 
-        Set<Node> containingNodes = collectionDescriptors.get(collectionName).getContainingNodesNames()
+        Set<Node> containingNodes = descriptor.getContainingNodesNames()
                 .stream()
                 .map(nodesService::getNode)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toSet());
 
         final CompletableFuture[] nodesFutures = containingNodes
@@ -206,49 +322,155 @@ public class CollectionService {
 
         return CompletableFuture.allOf(nodesFutures)
                 .thenAccept(future -> Arrays.stream(nodesFutures).forEach(CompletableFuture<String>::join))
-                .thenAccept(nothing -> collectionDescriptors.remove(collectionName));
+                .thenAccept(nothing -> metadataStore.remove(collectionName));
     }
 
+    // Stops at the first collection that could not be deleted
     @NotNull
-    public CompletableFuture<Void> copyCollectionToNode(final String collectionName, final String nodeName) {
-        logger.info("Copying collection '{}' to node '{}'", collectionName, nodeName);
-        Objects.requireNonNull(collectionName);
-        Objects.requireNonNull(nodeName);
+    public CompletableFuture<List<String>> deleteCollections(final String prefix) {
+        final List<String> names = List.copyOf(metadataStore.getNames(prefix));
+        logger.info("Deleting '{}' collections named with '{}'", names.size(), prefix);
+
+        CompletableFuture<Void> deleted = CompletableFuture.completedFuture(null);
+        for (int from = 0; from < names.size(); from += bulkDeleteMaxConcurrent) {
+            final List<String> slice = names.subList(from, Math.min(from + bulkDeleteMaxConcurrent, names.size()));
+            deleted = deleted.thenCompose(nothing -> CompletableFuture.allOf(slice.stream()
+                    .map(collectionName -> deleteCollection(collectionName).exceptionally(ex -> {
+                        // Deleted in the meantime
+                        if (ex instanceof UnknownCollectionException || ex.getCause() instanceof UnknownCollectionException) {
+                            return null;
+                        }
+                        throw ex instanceof CompletionException ? (CompletionException) ex : new CompletionException(ex);
+                    }))
+                    .toArray(CompletableFuture[]::new)));
+        }
+        return deleted.thenApply(nothing -> names);
+    }
 
-        if (!collectionDescriptors.containsKey(collectionName)) {
+    @NotNull
+    public List<String> setReplication(final String prefix, final int replication) {
+        final List<String> changed = new ArrayList<>();
+        for (String collectionName : List.copyOf(metadataStore.getNames(prefix))) {
+            metadataStore.setTargetReplication(collectionName, replication)
+                    .filter(descriptor -> descriptor.getTargetReplicationLevel() == replication)
+                    .ifPresent(descriptor -> changed.add(collectionName));
+        }
+
+        logger.info("Set replication level of '{}' collections named with '{}' to '{}'", changed.size(), prefix, replication);
+        return changed;
+    }
+
+    @NotNull
+    public CompletableFuture<Void> copyCollectionToNode(final String collectionName, final String nodeName) {
+        final CollectionDescriptor descriptor = metadataStore.get(collectionName).orElse(null);
+        if (descriptor == null) {
             logger.warn("Collection '{}' not found", collectionName);
+            return CompletableFuture.failedFuture(new UnknownCollectionException(collectionName));
         }
 
-        final CollectionDescriptor descriptor = collectionDescriptors.get(collectionName);
-        final Node node = nodesService.getNode(nodeName);
-        final Node origin = nodesService.getNode(descriptor.getContainingNodesNames().iterator().next());
+        return copyCollectionToNode(collectionName, collectionTransfer.orderByLoad(nodesOf(descriptor, nodeName)), nodeName);
+    }
 
-        final CollectionCopyRequest copyRequest = new CollectionCopyRequest(collectionName, "http://" + origin.getAddress());
+    @NotNull
+    public CompletableFuture<Void> copyCollectionToNode(final String collectionName, final String sourceName,
+                                                        final String nodeName) {
+        Objects.requireNonNull(sourceName);
 
-        String body = "";
-        try {
-            body = objectMapper.writeValueAsString(copyRequest);
-        } catch (JsonProcessingException e) {
-            // Eat it!
+        final CollectionDescriptor descriptor = metadataStore.get(collectionName).orElse(null);
+        if (descriptor == null) {
+            logger.warn("Collection '{}' not found", collectionName);
+            return CompletableFuture.failedFuture(new UnknownCollectionException(collectionName));
         }
 
-        HttpClient client = HttpClient.newBuilder()
-                .build();
+        final Node source = nodesService.getNode(sourceName);
+        if (source == null) {
+            return CompletableFuture.failedFuture(new UnknownNodeException(sourceName));
+        }
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create("http://" + node.getAddress() + "/collections/" + collectionName + "/copy"))
-                .POST(HttpRequest.BodyPublishers.ofString(body))
-                .build();
+        final List<Node> candidates = new ArrayList<>();
+        candidates.add(source);
+        candidates.addAll(collectionTransfer.orderByLoad(nodesOf(descriptor, nodeName).stream()
+                .filter(candidate -> !candidate.getName().equals(sourceName))
+                .collect(Collectors.toList())));
+        return copyCollectionToNode(collectionName, candidates, nodeName);
+    }
+
+    // The first candidate owing no hints sets the number of documents to copy
+    private CompletableFuture<Void> copyCollectionToNode(final String collectionName, final List<Node> candidates,
+                                                         final String nodeName) {
+        logger.info("Copying collection '{}' to node '{}'", collectionName, nodeName);
+        Objects.requireNonNull(collectionName);
+        Objects.requireNonNull(nodeName);
 
-        descriptor.setBlocked(true);
+        final Node node = nodesService.getNode(nodeName);
+        if (node == null) {
+            return CompletableFuture.failedFuture(new UnknownNodeException(nodeName));
+        }
+        if (candidates.isEmpty()) {
+            return CompletableFuture.failedFuture(new CollectionCopyException(collectionName, nodeName));
+        }
 
-        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
-                .thenApply(response -> {
+        // Sources are copied as of the fence, writes admitted after it are captured and replayed
+        final WriteCapture[] capture = new WriteCapture[1];
+        final List<Node> sources = new ArrayList<>();
+        return pendingReplicas.fenced(collectionName, candidates.stream().map(Node::getName).collect(Collectors.toList()),
+                () -> agreeingSources(collectionName, candidates, sources)
+                        .thenApply(itemCount -> {
+                            if (itemCount == null) {
+                                throw new CompletionException(new CollectionCopyException(collectionName, nodeName));
+                            }
+                            capture[0] = pendingReplicas.open(collectionName, nodeName);
+                            return itemCount;
+                        }))
+                .thenCompose(itemCount -> collectionTransfer.transfer(collectionName, sources, itemCount, node))
+                .thenCompose(nothing -> pendingReplicas.catchUp(capture[0], node, () -> {
                     logger.info("Collection '{}' successfully copied to node '{}'", collectionName, nodeName);
-                    descriptor.setBlocked(false);
-                    descriptor.getContainingNodesNames().add(node.getName());
-                    descriptor.setCurrentReplicationLevel(descriptor.getCurrentReplicationLevel() + 1);
-                    return null;
+                    metadataStore.addReplica(collectionName, node.getName());
+                }))
+                .whenComplete((nothing, ex) -> {
+                    if (capture[0] != null) {
+                        pendingReplicas.remove(capture[0]);
+                    }
+                    if (ex != null) {
+                        // The node is no replica, nothing owed to it may be delivered later
+                        hintedHandoff.drop(nodeName, collectionName);
+                    }
+                });
+    }
+
+    private List<Node> nodesOf(final CollectionDescriptor descriptor, final String excludedName) {
+        return descriptor.getContainingNodesNames()
+                .stream()
+                .filter(nodeName -> !nodeName.equals(excludedName))
+                .map(nodesService::getNode)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private CompletableFuture<Long> agreeingSources(final String collectionName, final List<Node> candidates,
+                                                    final List<Node> sources) {
+        // A source still owing writes would hand over documents that miss them
+        final List<Node> settled = candidates.stream()
+                .filter(candidate -> !hintedHandoff.hasHints(candidate.getName(), collectionName))
+                .collect(Collectors.toList());
+        final List<CompletableFuture<Long>> counts = settled.stream()
+                .map(candidate -> collectionTransfer.countOn(collectionName, candidate)
+                        .exceptionally(ex -> null))
+                .collect(Collectors.toList());
+
+        return CompletableFuture.allOf(counts.toArray(new CompletableFuture[0]))
+                .thenApply(nothing -> {
+                    final Long itemCount = counts.stream()
+                            .map(CompletableFuture::join)
+                            .filter(Objects::nonNull)
+                            .findFirst()
+                            .orElse(null);
+                    for (int i = 0; i < settled.size(); i++) {
+                        if (itemCount != null && itemCount.equals(counts.get(i).join())) {
+                            sources.add(settled.get(i));
+                        }
+                    }
+                    return itemCount;
                 });
     }
 
@@ -258,76 +480,32 @@ public class CollectionService {
         Objects.requireNonNull(collectionName);
         Objects.requireNonNull(node);
 
-        if (!collectionDescriptors.containsKey(collectionName)) {
+        if (!metadataStore.contains(collectionName)) {
             logger.warn("Collection '{}' not found", collectionName);
         }
 
         final String address = node.getAddress();
 
-        HttpClient client = HttpClient.newBuilder()
-                .build();
-
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create("http://" + address + "/collections/" + collectionName))
+        HttpRequest request = nodeTransport.request("http://" + address + "/collections/" + collectionName)
                 .DELETE()
                 .build();
 
         // TODO: Check for failures
-        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).thenAccept(req -> {
+        return nodeTransport.send(node, NodeOperation.DELETE, request, HttpResponse.BodyHandlers.discarding()).thenAccept(req -> {
         });
     }
 
-    private void checkReplicationStatus() {
-        collectionDescriptors
-                .values()
-                .stream()
-                .filter(Predicate.not(CollectionDescriptor::isFullyReplicated))
-                .forEach(descriptor -> {
-                    logger.info("Collection '{}' is trying to be replicated", descriptor.getName());
-                    nodesService.getFreeNode(descriptor.getContainingNodesNames())
-                            .thenAccept(freeNodeUsage -> copyCollectionToNode(descriptor.getName(), freeNodeUsage.getName()));
-                });
-    }
-
-    private void loadCollectionDatabase() {
-        logger.info("Reading collection database from 'collections.json' file");
-        try {
-            collectionDescriptors = objectMapper.readValue(new File("collections.json"), new TypeReference<Map<String, CollectionDescriptor>>() {
-            });
-        } catch (IOException e) {
-            logger.error("Failed to read collection database");
-        }
-    }
-
-    private void saveCollectionDatabase() {
-        logger.info("Saving collection database to 'collections.json' file");
-        try {
-            FileWriter fileWriter = new FileWriter("collections.json");
-            String fileBody = objectMapper.writeValueAsString(collectionDescriptors);
-            fileWriter.write(fileBody);
-            fileWriter.close();
-        } catch (Exception e) {
-            logger.error("Failed to save collection database");
-        }
-    }
-
     private void setUp() {
-        eventBus.listen(Event.NODE_REM, payload -> {
-            String nodeName = (String) payload;
-
-            collectionDescriptors.values().forEach(descriptor -> {
-                if (descriptor.removeNode(nodeName)) {
-                    descriptor.setCurrentReplicationLevel(descriptor.getCurrentReplicationLevel() - 1);
-                    logger.info("Collection '{}' current replication level dropped to '{}'", descriptor.getName(),
-                            descriptor.getCurrentReplicationLevel());
-                }
-            });
+        // Every replica dropped is journaled, keep that off the thread that found the node dead
+        nodesService.onRemoved(nodeName -> {
+            List.copyOf(metadataStore.getCollectionsOn(nodeName))
+                    .forEach(collectionName -> metadataStore.removeReplica(collectionName, nodeName)
+                            .ifPresent(updated -> logger.info("Collection '{}' current replication level dropped to '{}'",
+                                    updated.getName(), updated.getCurrentReplicationLevel())));
         });
 
-        loadCollectionDatabase();
+        collectionDatabase.load();
 
-        ScheduledExecutorService ex = Executors.newSingleThreadScheduledExecutor();
-        ex.scheduleAtFixedRate(this::checkReplicationStatus, 20, 20, TimeUnit.SECONDS);
-        ex.scheduleAtFixedRate(this::saveCollectionDatabase, 20, 20, TimeUnit.SECONDS);
+        repairScheduler.start(this::copyCollectionToNode);
     }
 }
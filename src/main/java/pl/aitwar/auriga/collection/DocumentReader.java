@@ -0,0 +1,103 @@
+package pl.aitwar.auriga.collection;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.jetbrains.annotations.NotNull;
+import pl.aitwar.auriga.collection.model.DocumentPayload;
+import pl.aitwar.auriga.utils.ByteBufferPool;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+// Validates documents as the bytes arrive, without copying them or building a tree
+@Singleton
+public class DocumentReader {
+    private final ObjectMapper objectMapper;
+    private final ByteBufferPool bufferPool;
+
+    @Inject
+    public DocumentReader(ObjectMapper objectMapper, ByteBufferPool bufferPool) {
+        this.objectMapper = objectMapper;
+        this.bufferPool = bufferPool;
+    }
+
+    @NotNull
+    public DocumentPayload read(final InputStream input) throws IOException {
+        final List<ByteBuffer> chunks = new ArrayList<>();
+        ByteBuffer current = bufferPool.acquire();
+
+        try (JsonParser parser = objectMapper.getFactory().createNonBlockingByteArrayParser()) {
+            final ByteArrayFeeder feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+            final Validation validation = new Validation();
+
+            while (true) {
+                if (!current.hasRemaining()) {
+                    chunks.add(current.flip());
+                    current = bufferPool.acquire();
+                }
+
+                final int start = current.arrayOffset() + current.position();
+                final int read = input.read(current.array(), start, current.remaining());
+                if (read < 0) {
+                    break;
+                }
+
+                current.position(current.position() + read);
+                feeder.feedInput(current.array(), start, start + read);
+                validation.consume(parser);
+            }
+
+            feeder.endOfInput();
+            validation.consume(parser);
+            validation.complete(parser);
+
+            if (current.position() > 0) {
+                chunks.add(current.flip());
+            } else {
+                bufferPool.release(current);
+            }
+            return new DocumentPayload(chunks, bufferPool);
+        } catch (IOException | RuntimeException e) {
+            chunks.forEach(bufferPool::release);
+            bufferPool.release(current);
+            throw e;
+        }
+    }
+
+    private static final class Validation {
+        private int depth;
+        private int roots;
+
+        private void consume(final JsonParser parser) throws IOException {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                if (token.isStructStart()) {
+                    depth++;
+                    continue;
+                }
+
+                if (token.isStructEnd()) {
+                    depth--;
+                }
+
+                if (depth == 0 && token != JsonToken.FIELD_NAME && ++roots > 1) {
+                    throw new JsonParseException(parser, "Document must contain a single JSON value");
+                }
+            }
+        }
+
+        private void complete(final JsonParser parser) throws JsonParseException {
+            if (roots != 1 || depth != 0) {
+                throw new JsonParseException(parser, "Document must contain a single JSON value");
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package pl.aitwar.auriga.collection;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import pl.aitwar.auriga.collection.model.CollectionDescriptor;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+class ReplicaIndex {
+    private final Map<String, Set<String>> collectionsByNode = new ConcurrentHashMap<>();
+    private final Set<String> underReplicated = ConcurrentHashMap.newKeySet();
+
+    // Either descriptor may be null; callers serialize changes of a single collection
+    void update(final String collectionName, @Nullable final CollectionDescriptor previous,
+                @Nullable final CollectionDescriptor current) {
+        if (previous != null) {
+            previous.getContainingNodesNames()
+                    .stream()
+                    .filter(nodeName -> current == null || !current.containsNode(nodeName))
+                    .forEach(nodeName -> unlink(nodeName, collectionName));
+        }
+
+        if (current != null) {
+            current.getContainingNodesNames()
+                    .stream()
+                    .filter(nodeName -> previous == null || !previous.containsNode(nodeName))
+                    .forEach(nodeName -> link(nodeName, collectionName));
+        }
+
+        if (current != null && !current.isFullyReplicated()) {
+            underReplicated.add(collectionName);
+        } else {
+            underReplicated.remove(collectionName);
+        }
+    }
+
+    void add(final String collectionName, final int targetLevel, final int currentLevel, final String[] nodeNames) {
+        for (String nodeName : nodeNames) {
+            link(nodeName, collectionName);
+        }
+
+        if (currentLevel != targetLevel) {
+            underReplicated.add(collectionName);
+        }
+    }
+
+    @NotNull
+    Set<String> collectionsOn(final String nodeName) {
+        final Set<String> collections = collectionsByNode.get(nodeName);
+        return collections == null ? Collections.emptySet() : Collections.unmodifiableSet(collections);
+    }
+
+    @NotNull
+    Set<String> underReplicated() {
+        return Collections.unmodifiableSet(underReplicated);
+    }
+
+    private void link(final String nodeName, final String collectionName) {
+        collectionsByNode.compute(nodeName, (node, collections) -> {
+            final Set<String> linked = collections == null ? ConcurrentHashMap.newKeySet() : collections;
+            linked.add(collectionName);
+            return linked;
+        });
+    }
+
+    private void unlink(final String nodeName, final String collectionName) {
+        collectionsByNode.computeIfPresent(nodeName, (node, collections) -> {
+            collections.remove(collectionName);
+            return collections.isEmpty() ? null : collections;
+        });
+    }
+}
@@ -0,0 +1,161 @@
+package pl.aitwar.auriga.collection.copy;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.aitwar.auriga.collection.CollectionConfiguration;
+import pl.aitwar.auriga.collection.model.CollectionCopyRequest;
+import pl.aitwar.auriga.collection.model.exceptions.CollectionCopyException;
+import pl.aitwar.auriga.nodes.NodeMetricsCache;
+import pl.aitwar.auriga.nodes.NodesService;
+import pl.aitwar.auriga.nodes.model.CollectionStatistics;
+import pl.aitwar.auriga.nodes.model.Node;
+import pl.aitwar.auriga.nodes.model.NodeUsageMetric;
+import pl.aitwar.auriga.transport.NodeTransport;
+import pl.aitwar.auriga.transport.model.NodeOperation;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+@Singleton
+public class CollectionTransfer {
+    private static final Logger logger = LoggerFactory.getLogger(CollectionTransfer.class);
+
+    private final NodeTransport nodeTransport;
+    private final NodesService nodesService;
+    private final NodeMetricsCache nodeMetricsCache;
+    private final ObjectMapper objectMapper;
+    private final long chunkDocuments;
+    private final int parallelRanges;
+    private final Duration copyTimeout;
+
+    @Inject
+    public CollectionTransfer(NodeTransport nodeTransport, NodesService nodesService, NodeMetricsCache nodeMetricsCache,
+                              ObjectMapper objectMapper, CollectionConfiguration configuration) {
+        this.nodeTransport = nodeTransport;
+        this.nodesService = nodesService;
+        this.nodeMetricsCache = nodeMetricsCache;
+        this.objectMapper = objectMapper;
+        this.chunkDocuments = configuration.getCopyChunkDocuments();
+        this.parallelRanges = configuration.getCopyParallelRanges();
+        this.copyTimeout = configuration.getCopyRequestTimeout();
+    }
+
+    @NotNull
+    public List<Node> orderByLoad(final Collection<Node> sources) {
+        return sources.stream()
+                .sorted(Comparator.comparingDouble(source -> reportedLoadOf(source.getName())))
+                .collect(Collectors.toList());
+    }
+
+    // Null when the node does not report it
+    @NotNull
+    public CompletableFuture<Long> countOn(final String collectionName, final Node node) {
+        return nodesService.getNodeUsage(node.getName())
+                .thenApply(metric -> metric.getCollections() == null ? null : metric.getCollections()
+                        .stream()
+                        .filter(statistics -> collectionName.equals(statistics.getName()))
+                        .map(CollectionStatistics::getItemCount)
+                        .filter(Objects::nonNull)
+                        .findFirst()
+                        .orElse(null));
+    }
+
+    // Sources must hold the same documents up to itemCount
+    @NotNull
+    public CompletableFuture<Void> transfer(final String collectionName, final List<Node> sources, final long itemCount,
+                                            final Node target) {
+        Objects.requireNonNull(collectionName);
+        Objects.requireNonNull(sources);
+        Objects.requireNonNull(target);
+
+        final List<CopyRange> ranges = split(itemCount);
+        logger.info("Copying '{}' documents of collection '{}' to node '{}' in '{}' ranges from '{}' sources",
+                itemCount, collectionName, target.getName(), ranges.size(), sources.size());
+
+        return countOn(collectionName, target)
+                .thenCompose(leftover -> leftover == null ? CompletableFuture.completedFuture(null) : discard(collectionName, target))
+                .thenCompose(nothing -> new TransferJob(collectionName, target, ranges, sources, parallelRanges, this::copyRange).start())
+                .thenCompose(nothing -> countOn(collectionName, target))
+                .thenCompose(copied -> {
+                    if (copied != null && copied == itemCount || copied == null && itemCount == 0) {
+                        return CompletableFuture.<Void>completedFuture(null);
+                    }
+
+                    logger.warn("Node '{}' holds '{}' documents of collection '{}' after copying '{}', "
+                                    + "storage nodes have to honour limit and partition of copy requests",
+                            target.getName(), copied, collectionName, itemCount);
+                    return CompletableFuture.<Void>failedFuture(new CollectionCopyException(collectionName, target.getName()));
+                })
+                .whenComplete((nothing, ex) -> {
+                    if (ex != null) {
+                        discard(collectionName, target);
+                    }
+                });
+    }
+
+    private List<CopyRange> split(final long itemCount) {
+        final int partitions = (int) Math.min(Integer.MAX_VALUE, (itemCount + chunkDocuments - 1) / chunkDocuments);
+        final List<CopyRange> ranges = new ArrayList<>();
+        for (int partition = 0; partition < partitions; partition++) {
+            ranges.add(new CopyRange(partition, partitions, itemCount));
+        }
+        return ranges;
+    }
+
+    private CompletableFuture<Void> copyRange(final String collectionName, final CopyRange range,
+                                              final Node source, final Node target) {
+        final CollectionCopyRequest copyRequest = new CollectionCopyRequest(collectionName, "http://" + source.getAddress(),
+                range.getLimit(), range.getPartition(), range.getPartitions());
+
+        final String body;
+        try {
+            body = objectMapper.writeValueAsString(copyRequest);
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        // The target answers once it pulled the whole range, which takes far longer than a regular request
+        final HttpRequest request = nodeTransport.request("http://" + target.getAddress() + "/collections/" + collectionName + "/copy",
+                        copyTimeout)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+
+        return nodeTransport.send(target, NodeOperation.COPY, request, HttpResponse.BodyHandlers.discarding())
+                .thenCompose(response -> response.statusCode() / 100 == 2
+                        ? CompletableFuture.<Void>completedFuture(null)
+                        : CompletableFuture.<Void>failedFuture(new CollectionCopyException(collectionName, target.getName())));
+    }
+
+    private CompletableFuture<Void> discard(final String collectionName, final Node target) {
+        final HttpRequest request = nodeTransport.request("http://" + target.getAddress() + "/collections/" + collectionName)
+                .DELETE()
+                .build();
+
+        return nodeTransport.send(target, NodeOperation.DELETE, request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, ex) -> {
+                    if (ex != null) {
+                        logger.warn("Could not delete what node '{}' holds of collection '{}'", target.getName(), collectionName);
+                    }
+                    return null;
+                });
+    }
+
+    private double reportedLoadOf(final String nodeName) {
+        return nodeMetricsCache.get(nodeName)
+                .map(NodeUsageMetric::getLoad)
+                .orElse(Double.MAX_VALUE);
+    }
+}
@@ -0,0 +1,11 @@
+package pl.aitwar.auriga.collection.copy;
+
+import lombok.Value;
+
+// One partition of the first limit documents, the same documents on every replica holding them
+@Value
+class CopyRange {
+    private int partition;
+    private int partitions;
+    private long limit;
+}
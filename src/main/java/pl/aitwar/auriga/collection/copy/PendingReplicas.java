@@ -0,0 +1,207 @@
+package pl.aitwar.auriga.collection.copy;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.aitwar.auriga.collection.CollectionConfiguration;
+import pl.aitwar.auriga.collection.model.DocumentPayload;
+import pl.aitwar.auriga.collection.model.exceptions.CollectionCopyException;
+import pl.aitwar.auriga.collection.write.NodeWritePipeline;
+import pl.aitwar.auriga.nodes.model.Node;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+// Replicas being copied, not routable yet, and the writes they still have to receive
+@Singleton
+public class PendingReplicas {
+    private static final Logger logger = LoggerFactory.getLogger(PendingReplicas.class);
+    private static final CompletableFuture<Void> ADMITTED = CompletableFuture.completedFuture(null);
+
+    private final Map<String, List<WriteCapture>> captures = new ConcurrentHashMap<>();
+    private final Map<String, WriteGate> gates = new ConcurrentHashMap<>();
+    private final NodeWritePipeline nodeWritePipeline;
+    private final int maxCapturedDocuments;
+    private final int catchUpRounds;
+
+    @Inject
+    public PendingReplicas(NodeWritePipeline nodeWritePipeline, CollectionConfiguration configuration) {
+        this.nodeWritePipeline = nodeWritePipeline;
+        this.maxCapturedDocuments = configuration.getCopyCaptureMaxDocuments();
+        this.catchUpRounds = configuration.getCopyCatchUpRounds();
+    }
+
+    // The writer has to call chosen afterwards
+    public CompletableFuture<Void> admit(final String collectionName) {
+        final CompletableFuture<?>[] lifted = new CompletableFuture[1];
+        gates.compute(collectionName, (name, gate) -> {
+            final WriteGate current = gate == null ? new WriteGate() : gate;
+            if (current.fence != null) {
+                lifted[0] = current.fence.lifted;
+            } else {
+                current.choosing++;
+            }
+            return current;
+        });
+
+        return lifted[0] == null ? ADMITTED : lifted[0].thenCompose(nothing -> admit(collectionName));
+    }
+
+    // Every node given is in flight until settled
+    public void chosen(final String collectionName, final Collection<String> nodeNames) {
+        final Fence[] drained = new Fence[1];
+        gates.compute(collectionName, (name, gate) -> {
+            gate.choosing--;
+            nodeNames.forEach(nodeName -> gate.inFlight.merge(nodeName, 1, Integer::sum));
+            drained[0] = gate.drainedFence();
+            return gate.isIdle() ? null : gate;
+        });
+        complete(drained[0]);
+    }
+
+    public void settled(final String collectionName, final String nodeName) {
+        final Fence[] drained = new Fence[1];
+        gates.compute(collectionName, (name, gate) -> {
+            gate.inFlight.computeIfPresent(nodeName, (node, count) -> count == 1 ? null : count - 1);
+            drained[0] = gate.drainedFence();
+            return gate.isIdle() ? null : gate;
+        });
+        complete(drained[0]);
+    }
+
+    // Writers wait for admission until the action completes
+    public <T> CompletableFuture<T> fenced(final String collectionName, final Collection<String> drainedNodes,
+                                           final Supplier<CompletableFuture<T>> action) {
+        final Fence fence = new Fence(drainedNodes);
+        final CompletableFuture<?>[] queued = new CompletableFuture[1];
+        final Fence[] drained = new Fence[1];
+        gates.compute(collectionName, (name, gate) -> {
+            final WriteGate current = gate == null ? new WriteGate() : gate;
+            if (current.fence != null) {
+                queued[0] = current.fence.lifted;
+            } else {
+                current.fence = fence;
+                drained[0] = current.drainedFence();
+            }
+            return current;
+        });
+
+        if (queued[0] != null) {
+            return queued[0].thenCompose(nothing -> fenced(collectionName, drainedNodes, action));
+        }
+
+        complete(drained[0]);
+        return fence.drained
+                .thenCompose(nothing -> action.get())
+                .whenComplete((result, ex) -> lift(collectionName, fence));
+    }
+
+    public WriteCapture open(final String collectionName, final String nodeName) {
+        final WriteCapture capture = new WriteCapture(collectionName, nodeName, maxCapturedDocuments);
+        captures.compute(collectionName, (name, pending) -> {
+            final List<WriteCapture> updated = pending == null ? new CopyOnWriteArrayList<>() : pending;
+            updated.add(capture);
+            return updated;
+        });
+        return capture;
+    }
+
+    public List<WriteCapture> of(final String collectionName) {
+        return captures.getOrDefault(collectionName, List.of());
+    }
+
+    public void remove(final WriteCapture capture) {
+        captures.computeIfPresent(capture.getCollectionName(), (name, pending) -> {
+            pending.remove(capture);
+            return pending.isEmpty() ? null : pending;
+        });
+        capture.discard();
+    }
+
+    public CompletableFuture<Void> catchUp(final WriteCapture capture, final Node node, final Runnable switchOver) {
+        return catchUp(capture, node, switchOver, 0);
+    }
+
+    private CompletableFuture<Void> catchUp(final WriteCapture capture, final Node node, final Runnable switchOver,
+                                            final int round) {
+        final List<DocumentPayload> documents = round < catchUpRounds ? capture.drain() : List.of();
+        if (documents.isEmpty()) {
+            return fenced(capture.getCollectionName(), List.of(), () -> switchOver(capture, node, switchOver));
+        }
+
+        return replay(capture.getCollectionName(), documents, node)
+                .thenCompose(nothing -> catchUp(capture, node, switchOver, round + 1));
+    }
+
+    private CompletableFuture<Void> switchOver(final WriteCapture capture, final Node node, final Runnable switchOver) {
+        final List<DocumentPayload> documents = capture.close();
+        if (capture.isOverflowed()) {
+            documents.forEach(DocumentPayload::release);
+            logger.warn("Too many writes to collection '{}' while copying it to node '{}'",
+                    capture.getCollectionName(), node.getName());
+            return CompletableFuture.failedFuture(new CollectionCopyException(capture.getCollectionName(), node.getName()));
+        }
+
+        return replay(capture.getCollectionName(), documents, node)
+                .thenRun(switchOver)
+                .thenRun(() -> remove(capture));
+    }
+
+    private CompletableFuture<Void> replay(final String collectionName, final List<DocumentPayload> documents, final Node node) {
+        final CompletableFuture[] writes = documents.stream()
+                .map(document -> nodeWritePipeline.write(node, collectionName, document)
+                        .whenComplete((nothing, ex) -> document.release()))
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(writes);
+    }
+
+    private void lift(final String collectionName, final Fence fence) {
+        gates.compute(collectionName, (name, gate) -> {
+            gate.fence = null;
+            return gate.isIdle() ? null : gate;
+        });
+        fence.lifted.complete(null);
+    }
+
+    private static void complete(final Fence drained) {
+        if (drained != null) {
+            drained.drained.complete(null);
+        }
+    }
+
+    // Only changed inside gates.compute
+    private static class WriteGate {
+        private final Map<String, Integer> inFlight = new HashMap<>();
+        private int choosing = 0;
+        private Fence fence;
+
+        private Fence drainedFence() {
+            if (fence == null || fence.drained.isDone() || choosing > 0
+                    || fence.nodes.stream().anyMatch(inFlight::containsKey)) {
+                return null;
+            }
+            return fence;
+        }
+
+        private boolean isIdle() {
+            return choosing == 0 && inFlight.isEmpty() && fence == null;
+        }
+    }
+
+    private static class Fence {
+        private final Collection<String> nodes;
+        private final CompletableFuture<Void> drained = new CompletableFuture<>();
+        private final CompletableFuture<Void> lifted = new CompletableFuture<>();
+
+        private Fence(final Collection<String> nodes) {
+            this.nodes = nodes;
+        }
+    }
+}
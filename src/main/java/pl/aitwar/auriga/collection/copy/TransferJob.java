@@ -0,0 +1,108 @@
+package pl.aitwar.auriga.collection.copy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.aitwar.auriga.collection.model.exceptions.CollectionCopyException;
+import pl.aitwar.auriga.nodes.model.Node;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class TransferJob {
+    private static final Logger logger = LoggerFactory.getLogger(TransferJob.class);
+
+    @FunctionalInterface
+    interface RangeCopier {
+        CompletableFuture<Void> copy(String collectionName, CopyRange range, Node source, Node target);
+    }
+
+    private final String collectionName;
+    private final Node target;
+    private final List<Node> sources;
+    private final int parallelism;
+    private final RangeCopier copier;
+    private final Queue<CopyRange> pending;
+    private final AtomicInteger remaining;
+    private final Set<String> failedSources = ConcurrentHashMap.newKeySet();
+    private final Queue<Node> idle = new ConcurrentLinkedQueue<>();
+    private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+    TransferJob(final String collectionName, final Node target, final List<CopyRange> ranges, final List<Node> sources,
+                final int parallelism, final RangeCopier copier) {
+        this.collectionName = collectionName;
+        this.target = target;
+        this.sources = sources;
+        this.parallelism = Math.max(parallelism, sources.size());
+        this.copier = copier;
+        this.pending = new ConcurrentLinkedQueue<>(ranges);
+        this.remaining = new AtomicInteger(ranges.size());
+    }
+
+    CompletableFuture<Void> start() {
+        if (pending.isEmpty()) {
+            result.complete(null);
+            return result;
+        }
+        if (sources.isEmpty()) {
+            result.completeExceptionally(new CollectionCopyException(collectionName, target.getName()));
+            return result;
+        }
+
+        // Sources come least loaded first, so they get the slots left over after one each
+        for (int i = 0; i < parallelism; i++) {
+            next(sources.get(i % sources.size()));
+        }
+        return result;
+    }
+
+    private void next(final Node source) {
+        if (result.isDone() || failedSources.contains(source.getName())) {
+            return;
+        }
+
+        final CopyRange range = pending.poll();
+        if (range == null) {
+            idle.add(source);
+            // A failed range may have been handed back after the poll above
+            if (!pending.isEmpty()) {
+                wakeUpIdle();
+            }
+            return;
+        }
+
+        copier.copy(collectionName, range, source, target).whenComplete((nothing, ex) -> {
+            if (ex == null) {
+                if (remaining.decrementAndGet() == 0) {
+                    result.complete(null);
+                }
+                next(source);
+                return;
+            }
+
+            logger.warn("Copying collection '{}' from node '{}' failed, handing range over to other sources",
+                    collectionName, source.getName());
+            failedSources.add(source.getName());
+            pending.add(range);
+            if (failedSources.size() == sources.size()) {
+                result.completeExceptionally(new CollectionCopyException(collectionName, target.getName()));
+                return;
+            }
+            wakeUpIdle();
+        });
+    }
+
+    private void wakeUpIdle() {
+        Node source;
+        while ((source = idle.poll()) != null) {
+            if (!failedSources.contains(source.getName())) {
+                next(source);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package pl.aitwar.auriga.collection.copy;
+
+import lombok.Getter;
+import pl.aitwar.auriga.collection.model.DocumentPayload;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class WriteCapture {
+    @Getter
+    private final String collectionName;
+    @Getter
+    private final String nodeName;
+    private final int maxDocuments;
+    private List<DocumentPayload> captured = new ArrayList<>();
+    private boolean closed = false;
+    private boolean overflowed = false;
+
+    WriteCapture(final String collectionName, final String nodeName, final int maxDocuments) {
+        this.collectionName = collectionName;
+        this.nodeName = nodeName;
+        this.maxDocuments = maxDocuments;
+    }
+
+    public synchronized boolean record(final DocumentPayload document) {
+        if (closed) {
+            return false;
+        }
+
+        if (overflowed) {
+            return true;
+        }
+
+        if (captured.size() >= maxDocuments) {
+            overflowed = true;
+            releaseCaptured();
+            return true;
+        }
+
+        captured.add(document.retain());
+        return true;
+    }
+
+    public synchronized boolean isOverflowed() {
+        return overflowed;
+    }
+
+    // The caller becomes responsible for releasing them
+    public synchronized List<DocumentPayload> drain() {
+        final List<DocumentPayload> drained = captured;
+        captured = new ArrayList<>();
+        return drained;
+    }
+
+    public synchronized List<DocumentPayload> close() {
+        closed = true;
+        return drain();
+    }
+
+    public synchronized void discard() {
+        closed = true;
+        releaseCaptured();
+    }
+
+    private void releaseCaptured() {
+        captured.forEach(DocumentPayload::release);
+        captured = new ArrayList<>();
+    }
+}
@@ -0,0 +1,6 @@
+package pl.aitwar.auriga.collection.journal;
+
+@FunctionalInterface
+public interface CollectionJournal {
+    void append(JournalEntry entry);
+}
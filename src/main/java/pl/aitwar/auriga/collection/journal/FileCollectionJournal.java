@@ -0,0 +1,247 @@
+package pl.aitwar.auriga.collection.journal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.aitwar.auriga.collection.CollectionConfiguration;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+@Singleton
+public class FileCollectionJournal implements CollectionJournal {
+    private static final Logger logger = LoggerFactory.getLogger(FileCollectionJournal.class);
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong size = new AtomicLong();
+    private final ObjectMapper objectMapper;
+    private final Path journalPath;
+    private final Path rotatedPath;
+    private final int maxBatch;
+    private final long retryDelay;
+    private FileChannel channel;
+    private OutputStream output;
+    private long synced;
+    private volatile IOException failure;
+
+    @Inject
+    public FileCollectionJournal(ObjectMapper objectMapper, CollectionConfiguration configuration) {
+        this.objectMapper = objectMapper;
+        this.journalPath = Paths.get(configuration.getJournalFile());
+        this.rotatedPath = Paths.get(configuration.getJournalFile() + ".old");
+        this.maxBatch = configuration.getJournalMaxBatch();
+        this.retryDelay = configuration.getJournalRetryDelay().toMillis();
+    }
+
+    @Override
+    public void append(final JournalEntry entry) {
+        // Refused while the journal cannot be written, so that the change it describes fails too
+        final IOException failed = failure;
+        if (failed != null) {
+            throw new UncheckedIOException("Collection journal cannot be written", failed);
+        }
+        queue.add(entry);
+    }
+
+    public long size() {
+        return size.get();
+    }
+
+    public void open(final Consumer<JournalEntry> replayer) throws IOException {
+        if (Files.exists(rotatedPath)) {
+            replay(rotatedPath, replayer);
+        }
+
+        if (Files.exists(journalPath)) {
+            final long valid = replay(journalPath, replayer);
+
+            try (FileChannel journal = FileChannel.open(journalPath, StandardOpenOption.WRITE)) {
+                if (journal.size() > valid) {
+                    logger.warn("Truncating torn tail of the collection journal");
+                    journal.truncate(valid);
+                } else if (journal.size() < valid) {
+                    // Last entry made it to the disk without its line separator
+                    journal.write(ByteBuffer.wrap(new byte[]{'\n'}), journal.size());
+                }
+            }
+        }
+
+        openOutput();
+
+        Thread writer = new Thread(this::writeLoop, "collection-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // False when a previously rotated journal still waits for its snapshot
+    @NotNull
+    public CompletableFuture<Boolean> rotate() {
+        final CompletableFuture<Boolean> rotation = new CompletableFuture<>();
+        queue.add(rotation);
+        return rotation;
+    }
+
+    public void dropRotated() throws IOException {
+        Files.deleteIfExists(rotatedPath);
+    }
+
+    private long replay(final Path path, final Consumer<JournalEntry> replayer) throws IOException {
+        long valid = 0;
+        int replayed = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final JournalEntry entry;
+                try {
+                    entry = objectMapper.readValue(line, JournalEntry.class);
+                } catch (IOException e) {
+                    logger.warn("Collection journal '{}' ends with a broken entry", path);
+                    break;
+                }
+
+                replayer.accept(entry);
+                valid += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                replayed++;
+            }
+        }
+
+        logger.info("Replayed {} entries of collection journal '{}'", replayed, path);
+        return valid;
+    }
+
+    private void openOutput() throws IOException {
+        channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        output = new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+        synced = channel.size();
+        size.set(synced);
+    }
+
+    // Drops whatever a failed write left past the last sync
+    private void reopenOutput() {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+            channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            if (channel.size() > synced) {
+                channel.truncate(synced);
+            }
+            channel.position(channel.size());
+            output = new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+            synced = channel.size();
+            size.set(synced);
+        } catch (IOException e) {
+            logger.error("Failed to reopen collection journal", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writeLoop() {
+        final List<Object> batch = new ArrayList<>();
+        final List<JournalEntry> unsynced = new ArrayList<>();
+
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatch - 1);
+
+                for (Object item : batch) {
+                    if (item instanceof JournalEntry) {
+                        unsynced.add((JournalEntry) item);
+                    } else {
+                        rotate((CompletableFuture<Boolean>) item, unsynced);
+                    }
+                }
+                batch.clear();
+
+                // Accepted entries are retried until written, never dropped
+                while (!unsynced.isEmpty() && !tryWrite(unsynced)) {
+                    Thread.sleep(retryDelay);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void rotate(final CompletableFuture<Boolean> rotation, final List<JournalEntry> unsynced) {
+        // Entries queued before the rotation belong to the rotated journal
+        if (!unsynced.isEmpty() && !tryWrite(unsynced)) {
+            rotation.completeExceptionally(failure);
+            return;
+        }
+
+        try {
+            rotation.complete(rotateFile());
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to rotate collection journal", e);
+            rotation.completeExceptionally(e);
+            reopenOutput();
+        }
+    }
+
+    private boolean tryWrite(final List<JournalEntry> unsynced) {
+        try {
+            for (JournalEntry entry : unsynced) {
+                write(entry);
+            }
+            sync();
+        } catch (IOException | RuntimeException e) {
+            if (failure == null) {
+                logger.error("Failed to write collection journal, refusing changes until it recovers", e);
+            }
+            failure = e instanceof IOException ? (IOException) e : new IOException(e);
+            reopenOutput();
+            return false;
+        }
+
+        unsynced.clear();
+        if (failure != null) {
+            logger.info("Collection journal recovered");
+            failure = null;
+        }
+        return true;
+    }
+
+    private void write(final JournalEntry entry) throws IOException {
+        final byte[] line = objectMapper.writeValueAsBytes(entry);
+        output.write(line);
+        output.write('\n');
+        size.addAndGet(line.length + 1);
+    }
+
+    private void sync() throws IOException {
+        output.flush();
+        channel.force(false);
+        synced = channel.size();
+    }
+
+    private boolean rotateFile() throws IOException {
+        if (Files.exists(rotatedPath)) {
+            return false;
+        }
+
+        output.close();
+        Files.move(journalPath, rotatedPath, StandardCopyOption.ATOMIC_MOVE);
+        openOutput();
+        return true;
+    }
+}
@@ -0,0 +1,18 @@
+package pl.aitwar.auriga.collection.journal;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import pl.aitwar.auriga.collection.model.CollectionDescriptor;
+
+// Carries the descriptor after the mutation, so replaying is idempotent
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalEntry {
+    private JournalOperation operation;
+    private String name;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private CollectionDescriptor descriptor;
+}
@@ -0,0 +1,5 @@
+package pl.aitwar.auriga.collection.journal;
+
+public enum JournalOperation {
+    CREATE, REPLICA_ADD, REPLICA_REMOVE, BLOCK, UNBLOCK, RETARGET, DELETE
+}
@@ -0,0 +1,105 @@
+package pl.aitwar.auriga.collection.listing;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.jetbrains.annotations.NotNull;
+import pl.aitwar.auriga.collection.CollectionMetadataStore;
+import pl.aitwar.auriga.collection.model.CollectionDescriptor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+
+// Serialized at most once per store version
+@Singleton
+public class CollectionListing {
+    // Versions restart with the process, the epoch keeps entity tags of different runs apart
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+
+    private final CollectionMetadataStore metadataStore;
+    private final ObjectMapper objectMapper;
+    private volatile Listing cached;
+
+    @Inject
+    public CollectionListing(CollectionMetadataStore metadataStore, ObjectMapper objectMapper) {
+        this.metadataStore = metadataStore;
+        this.objectMapper = objectMapper;
+    }
+
+    @NotNull
+    public Listing current() {
+        final long version = metadataStore.getVersion();
+        final Listing listing = cached;
+        if (listing != null && listing.version == version) {
+            return listing;
+        }
+
+        final Listing next = new Listing(version);
+        cached = next;
+        return next;
+    }
+
+    public final class Listing {
+        private final long version;
+        private volatile byte[] serialized;
+
+        private Listing(final long version) {
+            this.version = version;
+        }
+
+        @NotNull
+        public String getETag() {
+            return "\"" + EPOCH + "-" + version + "\"";
+        }
+
+        @NotNull
+        public byte[] serialized() {
+            byte[] body = serialized;
+            if (body == null) {
+                body = serialize();
+                serialized = body;
+            }
+            return body;
+        }
+
+        @NotNull
+        public ListingPage page(final String prefix, final String cursor, final int limit) {
+            NavigableSet<String> names = prefix == null ? metadataStore.getNames() : metadataStore.getNames(prefix);
+            if (cursor != null) {
+                names = names.tailSet(cursor, false);
+            }
+
+            final List<CollectionDescriptor> descriptors = new ArrayList<>(Math.min(limit, 64));
+            final Iterator<String> iterator = names.iterator();
+            while (iterator.hasNext() && descriptors.size() < limit) {
+                metadataStore.peek(iterator.next()).ifPresent(descriptors::add);
+            }
+
+            final boolean more = iterator.hasNext() && !descriptors.isEmpty();
+            return new ListingPage(descriptors, more ? descriptors.get(descriptors.size() - 1).getName() : null);
+        }
+
+        private byte[] serialize() {
+            final ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(body)) {
+                generator.writeStartArray();
+                for (String name : metadataStore.getNames()) {
+                    final CollectionDescriptor descriptor = metadataStore.peek(name).orElse(null);
+                    if (descriptor != null) {
+                        objectMapper.writeValue(generator, descriptor);
+                    }
+                }
+                generator.writeEndArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return body.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package pl.aitwar.auriga.collection.listing;
+
+import lombok.Value;
+import pl.aitwar.auriga.collection.model.CollectionDescriptor;
+
+import java.util.List;
+
+@Value
+public class ListingPage {
+    private List<CollectionDescriptor> descriptors;
+    // Null on the last page
+    private String nextCursor;
+}
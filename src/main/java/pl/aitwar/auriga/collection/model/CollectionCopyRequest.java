@@ -1,11 +1,21 @@
 package pl.aitwar.auriga.collection.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
+// Target keeps the first limit source documents whose CRC32 of compact JSON % partitions == partition, replacing its own
 @Data
 @AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class CollectionCopyRequest {
     private String name;
     private String url;
+    private Long limit;
+    private Integer partition;
+    private Integer partitions;
+
+    public CollectionCopyRequest(String name, String url) {
+        this(name, url, null, null, null);
+    }
 }
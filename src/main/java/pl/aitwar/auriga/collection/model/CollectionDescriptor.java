@@ -1,24 +1,46 @@
 package pl.aitwar.auriga.collection.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
+import lombok.AccessLevel;
 import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.Value;
 
-import java.util.HashSet;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Set;
 
-@Data
-@Builder
-@AllArgsConstructor
-@NoArgsConstructor
+// Replicas are ids of a NodeIds registry, exposed and serialized as node names
+@Value
+@Builder(toBuilder = true)
+@JsonDeserialize(builder = CollectionDescriptor.CollectionDescriptorBuilder.class)
 public class CollectionDescriptor {
+    private static final int[] NO_REPLICAS = new int[0];
+
     private int targetReplicationLevel;
     private int currentReplicationLevel;
+    @Builder.Default
     private boolean blocked = false;
     private String name;
-    private Set<String> containingNodesNames = new HashSet<>();
+    // Null when there are no replicas, so that equal descriptors have equal fields
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private int[] replicas;
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private NodeIds nodeIds;
+
+    @ToString.Include(name = "containingNodesNames")
+    public Set<String> getContainingNodesNames() {
+        return new NodeNames(replicas(), nodeIds);
+    }
 
     @JsonIgnore
     public boolean isFullyReplicated() {
@@ -27,10 +49,202 @@ public class CollectionDescriptor {
 
     @JsonIgnore
     public boolean isAvailable() {
-        return containingNodesNames.size() != 0;
+        return replicas().length != 0;
+    }
+
+    public boolean containsNode(String nodeName) {
+        final int id = nodeIds == null ? -1 : nodeIds.find(nodeName);
+        return id >= 0 && Arrays.binarySearch(replicas(), id) >= 0;
+    }
+
+    public CollectionDescriptor withNode(String nodeName) {
+        if (containsNode(nodeName)) {
+            return this;
+        }
+
+        final NodeIds registry = nodeIds != null ? nodeIds : new NodeIds();
+        return toBuilder()
+                .nodeIds(registry)
+                .replicas(withId(replicas(), registry.idOf(nodeName)))
+                .currentReplicationLevel(currentReplicationLevel + 1)
+                .build();
+    }
+
+    public CollectionDescriptor withoutNode(String nodeName) {
+        if (!containsNode(nodeName)) {
+            return this;
+        }
+
+        return toBuilder()
+                .replicas(withoutId(replicas(), nodeIds.find(nodeName)))
+                .currentReplicationLevel(currentReplicationLevel - 1)
+                .build();
+    }
+
+    public CollectionDescriptor withNodeIds(NodeIds registry) {
+        if (nodeIds == registry) {
+            return this;
+        }
+
+        return toBuilder()
+                .nodeIds(registry)
+                .clearContainingNodesNames()
+                .containingNodesNames(getContainingNodesNames())
+                .build();
+    }
+
+    public CollectionDescriptor withBlocked(boolean blocked) {
+        if (this.blocked == blocked) {
+            return this;
+        }
+
+        return toBuilder().blocked(blocked).build();
+    }
+
+    public CollectionDescriptor withTargetReplicationLevel(int targetReplicationLevel) {
+        if (this.targetReplicationLevel == targetReplicationLevel) {
+            return this;
+        }
+
+        return toBuilder().targetReplicationLevel(targetReplicationLevel).build();
+    }
+
+    private int[] replicas() {
+        return replicas == null ? NO_REPLICAS : replicas;
     }
 
-    public boolean removeNode(String nodeName) {
-        return containingNodesNames.remove(nodeName);
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof CollectionDescriptor)) {
+            return false;
+        }
+
+        final CollectionDescriptor descriptor = (CollectionDescriptor) other;
+        return targetReplicationLevel == descriptor.targetReplicationLevel
+                && currentReplicationLevel == descriptor.currentReplicationLevel
+                && blocked == descriptor.blocked
+                && Objects.equals(name, descriptor.name)
+                && (nodeIds == descriptor.nodeIds
+                ? Arrays.equals(replicas(), descriptor.replicas())
+                : getContainingNodesNames().equals(descriptor.getContainingNodesNames()));
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(targetReplicationLevel, currentReplicationLevel, blocked, name, getContainingNodesNames());
+    }
+
+    private static int[] withId(final int[] ids, final int id) {
+        final int position = Arrays.binarySearch(ids, id);
+        if (position >= 0) {
+            return ids;
+        }
+
+        final int insertion = -position - 1;
+        final int[] extended = new int[ids.length + 1];
+        System.arraycopy(ids, 0, extended, 0, insertion);
+        extended[insertion] = id;
+        System.arraycopy(ids, insertion, extended, insertion + 1, ids.length - insertion);
+        return extended;
+    }
+
+    private static int[] withoutId(final int[] ids, final int id) {
+        final int position = Arrays.binarySearch(ids, id);
+        if (position < 0) {
+            return ids;
+        }
+        if (ids.length == 1) {
+            return null;
+        }
+
+        final int[] reduced = new int[ids.length - 1];
+        System.arraycopy(ids, 0, reduced, 0, position);
+        System.arraycopy(ids, position + 1, reduced, position, ids.length - position - 1);
+        return reduced;
+    }
+
+    @JsonPOJOBuilder(withPrefix = "")
+    public static class CollectionDescriptorBuilder {
+        private int[] replicas;
+        private NodeIds nodeIds;
+
+        public CollectionDescriptorBuilder containingNodesName(String nodeName) {
+            if (nodeIds == null) {
+                nodeIds = new NodeIds();
+            }
+            replicas = withId(replicas == null ? NO_REPLICAS : replicas, nodeIds.idOf(nodeName));
+            return this;
+        }
+
+        public CollectionDescriptorBuilder containingNodesNames(Collection<? extends String> nodeNames) {
+            nodeNames.forEach(this::containingNodesName);
+            return this;
+        }
+
+        // Ids of the registry given with nodeIds
+        public CollectionDescriptorBuilder containingNodeIds(int... ids) {
+            final int[] sorted = ids.clone();
+            Arrays.sort(sorted);
+            replicas = sorted.length == 0 ? null : Arrays.stream(sorted).distinct().toArray();
+            return this;
+        }
+
+        public CollectionDescriptorBuilder clearContainingNodesNames() {
+            replicas = null;
+            return this;
+        }
+
+        private CollectionDescriptorBuilder replicas(int[] replicas) {
+            this.replicas = replicas;
+            return this;
+        }
+    }
+
+    private static final class NodeNames extends AbstractSet<String> {
+        private final int[] ids;
+        private final NodeIds nodeIds;
+
+        private NodeNames(final int[] ids, final NodeIds nodeIds) {
+            this.ids = ids;
+            this.nodeIds = nodeIds;
+        }
+
+        @Override
+        public boolean contains(final Object nodeName) {
+            if (!(nodeName instanceof String)) {
+                return false;
+            }
+
+            final int id = nodeIds == null ? -1 : nodeIds.find((String) nodeName);
+            return id >= 0 && Arrays.binarySearch(ids, id) >= 0;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<>() {
+                private int next = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return next < ids.length;
+                }
+
+                @Override
+                public String next() {
+                    if (next >= ids.length) {
+                        throw new NoSuchElementException();
+                    }
+                    return nodeIds.nameOf(ids[next++]);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
     }
 }
@@ -0,0 +1,109 @@
+package pl.aitwar.auriga.collection.model;
+
+import org.jetbrains.annotations.NotNull;
+import pl.aitwar.auriga.utils.ByteBufferPool;
+import pl.aitwar.auriga.utils.ByteBufferPublisher;
+
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Buffers go back to the pool once the last reference is released
+public class DocumentPayload {
+    private final List<ByteBuffer> chunks;
+    private final long length;
+    private final ByteBufferPool pool;
+    private final AtomicInteger references = new AtomicInteger(1);
+    private volatile boolean abandoned;
+
+    public DocumentPayload(final List<ByteBuffer> chunks, final ByteBufferPool pool) {
+        this.chunks = Collections.unmodifiableList(chunks);
+        this.length = chunks.stream().mapToLong(ByteBuffer::remaining).sum();
+        this.pool = pool;
+    }
+
+    @NotNull
+    public static DocumentPayload of(final String document) {
+        return new DocumentPayload(List.of(ByteBuffer.wrap(document.getBytes(StandardCharsets.UTF_8))), null);
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    @NotNull
+    public List<ByteBuffer> getChunks() {
+        return chunks;
+    }
+
+    @NotNull
+    public HttpRequest.BodyPublisher publisher() {
+        return HttpRequest.BodyPublishers.fromPublisher(new ByteBufferPublisher(chunks, this::tryRetain, this::release),
+                length);
+    }
+
+    @NotNull
+    public static HttpRequest.BodyPublisher arrayPublisher(final List<DocumentPayload> documents) {
+        final List<ByteBuffer> buffers = new ArrayList<>();
+        long length = 2 + Math.max(documents.size() - 1, 0);
+
+        buffers.add(ByteBuffer.wrap(new byte[]{'['}));
+        for (int i = 0; i < documents.size(); i++) {
+            if (i > 0) {
+                buffers.add(ByteBuffer.wrap(new byte[]{','}));
+            }
+            buffers.addAll(documents.get(i).chunks);
+            length += documents.get(i).length;
+        }
+        buffers.add(ByteBuffer.wrap(new byte[]{']'}));
+
+        return HttpRequest.BodyPublishers.fromPublisher(new ByteBufferPublisher(buffers,
+                () -> tryRetainAll(documents), () -> documents.forEach(DocumentPayload::release)), length);
+    }
+
+    private static boolean tryRetainAll(final List<DocumentPayload> documents) {
+        for (int i = 0; i < documents.size(); i++) {
+            if (!documents.get(i).tryRetain()) {
+                documents.subList(0, i).forEach(DocumentPayload::release);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @NotNull
+    public DocumentPayload retain() {
+        references.incrementAndGet();
+        return this;
+    }
+
+    public void release() {
+        final int remaining = references.decrementAndGet();
+        if (remaining < 0) {
+            throw new IllegalStateException("Document released more often than retained");
+        }
+        if (remaining == 0 && pool != null && !abandoned) {
+            chunks.forEach(pool::release);
+        }
+    }
+
+    // For requests that failed while the client may still be reading the buffers
+    public void abandon() {
+        abandoned = true;
+    }
+
+    private boolean tryRetain() {
+        int current;
+        do {
+            current = references.get();
+            if (current <= 0) {
+                return false;
+            }
+        } while (!references.compareAndSet(current, current + 1));
+        return true;
+    }
+}
@@ -0,0 +1,46 @@
+package pl.aitwar.auriga.collection.model;
+
+import com.google.inject.Singleton;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Ids are never reused
+@Singleton
+public class NodeIds {
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[4];
+    private int count = 0;
+
+    public int idOf(final String nodeName) {
+        final Integer id = ids.get(nodeName);
+        return id != null ? id : register(nodeName);
+    }
+
+    // -1 when never registered
+    public int find(final String nodeName) {
+        final Integer id = ids.get(nodeName);
+        return id != null ? id : -1;
+    }
+
+    public String nameOf(final int id) {
+        return names[id];
+    }
+
+    private synchronized int register(final String nodeName) {
+        final Integer existing = ids.get(nodeName);
+        if (existing != null) {
+            return existing;
+        }
+
+        String[] table = names;
+        if (count == table.length) {
+            table = Arrays.copyOf(table, count * 2);
+        }
+        table[count] = nodeName;
+        names = table;
+        ids.put(nodeName, count);
+        return count++;
+    }
+}
@@ -0,0 +1,17 @@
+package pl.aitwar.auriga.collection.model;
+
+public enum WriteConsistency {
+    ONE, QUORUM, ALL;
+
+    public int required(final int replicas) {
+        switch (this) {
+            case ONE:
+                return Math.min(1, replicas);
+            case QUORUM:
+                return replicas / 2 + 1;
+            case ALL:
+            default:
+                return replicas;
+        }
+    }
+}
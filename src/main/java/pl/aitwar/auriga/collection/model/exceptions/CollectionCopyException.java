@@ -0,0 +1,7 @@
+package pl.aitwar.auriga.collection.model.exceptions;
+
+public class CollectionCopyException extends Exception {
+    public CollectionCopyException(final String collection, final String node) {
+        super("Collection '" + collection + "' failed to copy to '" + node + "'");
+    }
+}
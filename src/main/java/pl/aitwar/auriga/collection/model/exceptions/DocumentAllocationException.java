@@ -1,8 +1,14 @@
 package pl.aitwar.auriga.collection.model.exceptions;
 
 public class DocumentAllocationException extends Exception {
-    public DocumentAllocationException(final String collection, final String node) {
-        super("Document from  '" + collection + "' failed to allocate at '" + node + "'");
+    private final int status;
+
+    public DocumentAllocationException(final String collection, final String node, final int status) {
+        super("Document from  '" + collection + "' failed to allocate at '" + node + "' with status '" + status + "'");
+        this.status = status;
     }
-}
 
+    public int getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,51 @@
+package pl.aitwar.auriga.collection.placement;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.aitwar.auriga.collection.CollectionConfiguration;
+import pl.aitwar.auriga.nodes.NodesService;
+import pl.aitwar.auriga.nodes.model.exceptions.NoFreeNodeException;
+import pl.aitwar.auriga.utils.eventbus.Event;
+import pl.aitwar.auriga.utils.eventbus.EventBus;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+@Singleton
+public class ConsistentHashPlacement implements PlacementStrategy {
+    private static final Logger logger = LoggerFactory.getLogger(ConsistentHashPlacement.class);
+
+    private final NodesService nodesService;
+    private final int virtualNodes;
+    private volatile HashRing ring = HashRing.EMPTY;
+
+    @Inject
+    public ConsistentHashPlacement(NodesService nodesService, EventBus eventBus, CollectionConfiguration configuration) {
+        this.nodesService = nodesService;
+        this.virtualNodes = configuration.getPlacementVirtualNodes();
+
+        eventBus.listen(Event.NODE_ADD, payload -> rebuild());
+        eventBus.listen(Event.NODE_UPD, payload -> rebuild());
+        eventBus.listen(Event.NODE_REM, payload -> rebuild());
+        rebuild();
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<List<String>> place(final String collectionName, final int replicas, final Set<String> excluded) {
+        final List<String> nodes = ring.replicas(collectionName, replicas, excluded);
+        if (nodes.isEmpty()) {
+            return CompletableFuture.failedFuture(new NoFreeNodeException());
+        }
+        return CompletableFuture.completedFuture(nodes);
+    }
+
+    private synchronized void rebuild() {
+        ring = HashRing.build(List.copyOf(nodesService.getNodes()), virtualNodes);
+        logger.debug("Placement ring rebuilt with '{}' nodes", ring.size());
+    }
+}
@@ -0,0 +1,130 @@
+package pl.aitwar.auriga.collection.placement;
+
+import pl.aitwar.auriga.nodes.model.Node;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+final class HashRing {
+    static final HashRing EMPTY = new HashRing(new long[0], new int[0], new String[0]);
+
+    private final long[] points;
+    private final int[] owners;
+    private final String[] nodes;
+
+    private HashRing(long[] points, int[] owners, String[] nodes) {
+        this.points = points;
+        this.owners = owners;
+        this.nodes = nodes;
+    }
+
+    static HashRing build(final Collection<Node> members, final int virtualNodes) {
+        final String[] nodes = members.stream()
+                .map(Node::getName)
+                .sorted()
+                .toArray(String[]::new);
+        final Map<String, Integer> capacities = new HashMap<>();
+        members.forEach(node -> capacities.put(node.getName(), Math.max(1, node.getCapacity())));
+
+        int total = 0;
+        for (String node : nodes) {
+            total += virtualNodes * capacities.get(node);
+        }
+
+        final long[] entries = new long[total];
+        final int[] entryOwners = new int[total];
+        int count = 0;
+        for (int owner = 0; owner < nodes.length; owner++) {
+            final int tokens = virtualNodes * capacities.get(nodes[owner]);
+            for (int token = 0; token < tokens; token++) {
+                entries[count] = hash(nodes[owner] + '#' + token);
+                entryOwners[count] = owner;
+                count++;
+            }
+        }
+
+        final Integer[] order = new Integer[total];
+        for (int i = 0; i < total; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            final int byPoint = Long.compareUnsigned(entries[a], entries[b]);
+            return byPoint != 0 ? byPoint : Integer.compare(entryOwners[a], entryOwners[b]);
+        });
+
+        final long[] points = new long[total];
+        final int[] owners = new int[total];
+        for (int i = 0; i < total; i++) {
+            points[i] = entries[order[i]];
+            owners[i] = entryOwners[order[i]];
+        }
+
+        return new HashRing(points, owners, nodes);
+    }
+
+    int size() {
+        return nodes.length;
+    }
+
+    List<String> replicas(final String key, final int count, final Set<String> excluded) {
+        if (points.length == 0 || count <= 0) {
+            return List.of();
+        }
+
+        final List<String> result = new ArrayList<>(Math.min(count, nodes.length));
+        final boolean[] seen = new boolean[nodes.length];
+        int distinct = 0;
+
+        for (int i = 0, at = firstAtOrAfter(hash(key)); i < points.length && distinct < nodes.length; i++, at++) {
+            if (at == points.length) {
+                at = 0;
+            }
+
+            final int owner = owners[at];
+            if (seen[owner]) {
+                continue;
+            }
+            seen[owner] = true;
+            distinct++;
+
+            if (excluded == null || !excluded.contains(nodes[owner])) {
+                result.add(nodes[owner]);
+                if (result.size() == count) {
+                    break;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private int firstAtOrAfter(final long point) {
+        int low = 0;
+        int high = points.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (Long.compareUnsigned(points[mid], point) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low == points.length ? 0 : low;
+    }
+
+    // FNV-1a finished with the MurmurHash3 mixer
+    static long hash(final String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
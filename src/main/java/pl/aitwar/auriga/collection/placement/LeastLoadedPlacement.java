@@ -0,0 +1,29 @@
+package pl.aitwar.auriga.collection.placement;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.jetbrains.annotations.NotNull;
+import pl.aitwar.auriga.nodes.NodesService;
+import pl.aitwar.auriga.nodes.model.NodeUsageMetric;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+@Singleton
+public class LeastLoadedPlacement implements PlacementStrategy {
+    private final NodesService nodesService;
+
+    @Inject
+    public LeastLoadedPlacement(NodesService nodesService) {
+        this.nodesService = nodesService;
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<List<String>> place(final String collectionName, final int replicas, final Set<String> excluded) {
+        return nodesService.getFreeNode(excluded)
+                .thenApply(NodeUsageMetric::getName)
+                .thenApply(List::of);
+    }
+}
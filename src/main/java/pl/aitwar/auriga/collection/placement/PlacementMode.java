@@ -0,0 +1,5 @@
+package pl.aitwar.auriga.collection.placement;
+
+public enum PlacementMode {
+    CONSISTENT_HASH, LEAST_LOADED
+}
@@ -0,0 +1,13 @@
+package pl.aitwar.auriga.collection.placement;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+public interface PlacementStrategy {
+    // Fails with NoFreeNodeException when no node can be picked
+    @NotNull
+    CompletableFuture<List<String>> place(String collectionName, int replicas, Set<String> excluded);
+}
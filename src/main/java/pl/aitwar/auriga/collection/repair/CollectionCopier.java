@@ -0,0 +1,8 @@
+package pl.aitwar.auriga.collection.repair;
+
+import java.util.concurrent.CompletableFuture;
+
+@FunctionalInterface
+public interface CollectionCopier {
+    CompletableFuture<Void> copy(String collectionName, String sourceNodeName, String targetNodeName);
+}
@@ -0,0 +1,206 @@
+package pl.aitwar.auriga.collection.repair;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.aitwar.auriga.collection.CollectionConfiguration;
+import pl.aitwar.auriga.collection.CollectionMetadataStore;
+import pl.aitwar.auriga.collection.model.CollectionDescriptor;
+import pl.aitwar.auriga.collection.placement.PlacementStrategy;
+import pl.aitwar.auriga.metrics.Metrics;
+import pl.aitwar.auriga.nodes.NodeMetricsCache;
+import pl.aitwar.auriga.nodes.NodesService;
+import pl.aitwar.auriga.nodes.model.CollectionStatistics;
+import pl.aitwar.auriga.nodes.model.NodeUsageMetric;
+import pl.aitwar.auriga.utils.BackgroundExecutors;
+
+import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// All state is confined to the scheduler thread
+@Singleton
+public class RepairScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(RepairScheduler.class);
+
+    private final CollectionMetadataStore metadataStore;
+    private final PlacementStrategy placementStrategy;
+    private final NodesService nodesService;
+    private final NodeMetricsCache nodeMetricsCache;
+    private final CollectionConfiguration configuration;
+    private final ScheduledExecutorService executor;
+
+    private final PriorityQueue<RepairTask> queue = new PriorityQueue<>(RepairTask.PRIORITY);
+    private final List<RepairTask> deferred = new ArrayList<>();
+    private final Set<String> scheduled = new HashSet<>();
+    private final Map<String, Integer> copiesPerNode = new HashMap<>();
+    private final TokenBucket budget;
+    private int running = 0;
+    private boolean wakeUpPending = false;
+    private CollectionCopier copier;
+    private volatile int waitingSnapshot = 0;
+    private volatile int runningSnapshot = 0;
+
+    @Inject
+    public RepairScheduler(CollectionMetadataStore metadataStore, PlacementStrategy placementStrategy,
+                           NodesService nodesService, NodeMetricsCache nodeMetricsCache,
+                           CollectionConfiguration configuration, Metrics metrics,
+                           BackgroundExecutors backgroundExecutors) {
+        this.metadataStore = metadataStore;
+        this.executor = backgroundExecutors.newScheduler();
+        this.placementStrategy = placementStrategy;
+        this.nodesService = nodesService;
+        this.nodeMetricsCache = nodeMetricsCache;
+        this.configuration = configuration;
+        this.budget = new TokenBucket(configuration.getRepairDocumentsPerSecond(),
+                configuration.getRepairBurstDocuments(), System.nanoTime());
+
+        metrics.gauge("auriga_repair_queue_depth", "Under-replicated collections waiting for repair", "",
+                () -> waitingSnapshot);
+        metrics.gauge("auriga_repairs_running", "Collections being copied by repair", "", () -> runningSnapshot);
+    }
+
+    public void start(final CollectionCopier copier) {
+        this.copier = Objects.requireNonNull(copier);
+
+        final long interval = configuration.getRepairInterval().toMillis();
+        executor.scheduleAtFixedRate(this::sweep, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private void sweep() {
+        try {
+            queue.addAll(deferred);
+            deferred.clear();
+
+            metadataStore.getUnderReplicated().forEach(collectionName -> {
+                if (scheduled.contains(collectionName)) {
+                    return;
+                }
+
+                metadataStore.get(collectionName)
+                        .filter(descriptor -> !descriptor.isFullyReplicated() && !descriptor.isBlocked())
+                        .ifPresent(descriptor -> {
+                            scheduled.add(collectionName);
+                            queue.add(RepairTask.of(descriptor));
+                        });
+            });
+
+            if (!queue.isEmpty()) {
+                logger.debug("'{}' collections waiting for repair, '{}' running", queue.size(), running);
+            }
+            dispatch();
+        } catch (Exception e) {
+            logger.error("Repair sweep failed", e);
+        }
+    }
+
+    private void dispatch() {
+        while (running < configuration.getRepairMaxConcurrent() && !queue.isEmpty()) {
+            final long now = System.nanoTime();
+            if (!budget.isAvailable(now)) {
+                wakeUpIn(budget.nanosUntilAvailable(now));
+                return;
+            }
+
+            final RepairTask task = queue.poll();
+            final CollectionDescriptor descriptor = metadataStore.get(task.getCollectionName()).orElse(null);
+            if (descriptor == null || descriptor.isFullyReplicated() || descriptor.isBlocked()) {
+                scheduled.remove(task.getCollectionName());
+                continue;
+            }
+
+            running++;
+            placementStrategy.place(descriptor.getName(), configuration.getRepairTargetCandidates(), descriptor.getContainingNodesNames())
+                    .whenCompleteAsync((candidates, ex) -> {
+                        if (ex != null || !begin(task, descriptor, candidates)) {
+                            running--;
+                            deferred.add(task);
+                            publishState();
+                        }
+                    }, executor);
+        }
+        publishState();
+    }
+
+    private void publishState() {
+        waitingSnapshot = queue.size() + deferred.size();
+        runningSnapshot = running;
+    }
+
+    private boolean begin(final RepairTask task, final CollectionDescriptor descriptor, final List<String> candidates) {
+        final int perNodeLimit = configuration.getRepairMaxPerNode();
+
+        final Optional<String> source = descriptor.getContainingNodesNames()
+                .stream()
+                .filter(nodeName -> nodesService.getNode(nodeName) != null)
+                .filter(nodeName -> copiesOn(nodeName) < perNodeLimit)
+                .min(Comparator.comparingDouble(this::reportedLoadOf));
+        final Optional<String> target = candidates.stream()
+                .filter(nodeName -> copiesOn(nodeName) < perNodeLimit)
+                .findFirst();
+
+        if (source.isEmpty() || target.isEmpty()) {
+            return false;
+        }
+
+        final String sourceName = source.get();
+        final String targetName = target.get();
+        budget.charge(estimatedDocumentsOf(descriptor.getName(), sourceName));
+        copiesPerNode.merge(sourceName, 1, Integer::sum);
+        copiesPerNode.merge(targetName, 1, Integer::sum);
+
+        logger.info("Repairing collection '{}' from '{}' to '{}'", task.getCollectionName(), sourceName, targetName);
+        copier.copy(task.getCollectionName(), sourceName, targetName)
+                .whenCompleteAsync((nothing, ex) -> {
+                    if (ex != null) {
+                        logger.warn("Repair of collection '{}' failed '{}'", task.getCollectionName(), ex.getMessage());
+                    }
+
+                    running--;
+                    releaseCopyOn(sourceName);
+                    releaseCopyOn(targetName);
+                    scheduled.remove(task.getCollectionName());
+
+                    queue.addAll(deferred);
+                    deferred.clear();
+                    dispatch();
+                }, executor);
+        return true;
+    }
+
+    private void releaseCopyOn(final String nodeName) {
+        copiesPerNode.computeIfPresent(nodeName, (node, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private int copiesOn(final String nodeName) {
+        return copiesPerNode.getOrDefault(nodeName, 0);
+    }
+
+    private long estimatedDocumentsOf(final String collectionName, final String nodeName) {
+        return nodeMetricsCache.get(nodeName)
+                .filter(usage -> usage.getCollections() != null)
+                .flatMap(usage -> usage.getCollections().stream()
+                        .filter(statistics -> collectionName.equals(statistics.getName()))
+                        .map(CollectionStatistics::getItemCount)
+                        .filter(Objects::nonNull)
+                        .findFirst())
+                .orElse(1L);
+    }
+
+    private double reportedLoadOf(final String nodeName) {
+        return nodeMetricsCache.get(nodeName)
+                .map(NodeUsageMetric::getLoad)
+                .orElse(Double.MAX_VALUE);
+    }
+
+    private void wakeUpIn(final long nanos) {
+        if (!wakeUpPending) {
+            wakeUpPending = true;
+            executor.schedule(() -> {
+                wakeUpPending = false;
+                dispatch();
+            }, nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package pl.aitwar.auriga.collection.repair;
+
+import lombok.Value;
+import pl.aitwar.auriga.collection.model.CollectionDescriptor;
+
+import java.util.Comparator;
+
+@Value
+class RepairTask {
+    // Closest to losing the last replica first, then missing the most
+    static final Comparator<RepairTask> PRIORITY = Comparator.comparingInt(RepairTask::getCurrentReplicationLevel)
+            .thenComparing(Comparator.comparingInt(RepairTask::getDeficit).reversed())
+            .thenComparing(RepairTask::getCollectionName);
+
+    private String collectionName;
+    private int currentReplicationLevel;
+    private int deficit;
+
+    static RepairTask of(final CollectionDescriptor descriptor) {
+        return new RepairTask(descriptor.getName(), descriptor.getCurrentReplicationLevel(),
+                descriptor.getTargetReplicationLevel() - descriptor.getCurrentReplicationLevel());
+    }
+}
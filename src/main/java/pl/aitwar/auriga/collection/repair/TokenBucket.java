@@ -0,0 +1,37 @@
+package pl.aitwar.auriga.collection.repair;
+
+// A copy starts whenever any tokens are left and runs into debt for the rest
+class TokenBucket {
+    private final double tokensPerNano;
+    private final double capacity;
+    private double tokens;
+    private long updatedAt;
+
+    TokenBucket(final double tokensPerSecond, final double capacity, final long now) {
+        this.tokensPerNano = tokensPerSecond / 1_000_000_000.0;
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.updatedAt = now;
+    }
+
+    boolean isAvailable(final long now) {
+        refill(now);
+        return tokens > 0;
+    }
+
+    void charge(final double cost) {
+        tokens -= cost;
+    }
+
+    long nanosUntilAvailable(final long now) {
+        refill(now);
+        return tokens > 0 ? 0 : (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+
+    private void refill(final long now) {
+        if (now > updatedAt) {
+            tokens = Math.min(capacity, tokens + (now - updatedAt) * tokensPerNano);
+            updatedAt = now;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package pl.aitwar.auriga.collection.routing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.aitwar.auriga.nodes.model.Node;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpResponse;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+class HedgedRead {
+    private static final Logger logger = LoggerFactory.getLogger(HedgedRead.class);
+
+    private final List<Node> replicas;
+    private final Function<List<Node>, Optional<Node>> router;
+    private final Function<Node, CompletableFuture<HttpResponse<InputStream>>> sender;
+    private final CompletableFuture<HttpResponse<InputStream>> result = new CompletableFuture<>();
+    private final Set<String> tried = new HashSet<>();
+    private int outstanding = 0;
+    private HttpResponse<InputStream> fallback;
+    private Throwable failure;
+
+    HedgedRead(final List<Node> replicas, final Function<List<Node>, Optional<Node>> router,
+               final Function<Node, CompletableFuture<HttpResponse<InputStream>>> sender) {
+        this.replicas = replicas;
+        this.router = router;
+        this.sender = sender;
+    }
+
+    CompletableFuture<HttpResponse<InputStream>> start() {
+        if (!launch()) {
+            result.completeExceptionally(new IllegalStateException("No replica to read from"));
+        }
+        return result;
+    }
+
+    synchronized boolean hedge() {
+        if (result.isDone()) {
+            return false;
+        }
+        return launch();
+    }
+
+    private synchronized boolean launch() {
+        final List<Node> untried = replicas.stream()
+                .filter(node -> !tried.contains(node.getName()))
+                .collect(Collectors.toList());
+        final Optional<Node> node = router.apply(untried);
+        if (node.isEmpty()) {
+            return false;
+        }
+
+        if (!tried.isEmpty()) {
+            logger.debug("Hedging read to node '{}'", node.get().getName());
+        }
+        tried.add(node.get().getName());
+        outstanding++;
+        sender.apply(node.get()).whenComplete(this::onResponse);
+        return true;
+    }
+
+    private synchronized void onResponse(final HttpResponse<InputStream> response, final Throwable ex) {
+        outstanding--;
+
+        if (ex == null && response.statusCode() < 500) {
+            if (result.complete(response)) {
+                close(fallback);
+                fallback = null;
+            } else {
+                close(response);
+            }
+            return;
+        }
+
+        if (result.isDone()) {
+            close(response);
+            return;
+        }
+
+        // Keep the server error to hand back if no replica does better
+        if (response != null) {
+            close(fallback);
+            fallback = response;
+        } else {
+            failure = ex;
+        }
+
+        if (!launch() && outstanding == 0) {
+            if (fallback != null) {
+                result.complete(fallback);
+            } else {
+                result.completeExceptionally(failure);
+            }
+        }
+    }
+
+    private static void close(final HttpResponse<InputStream> response) {
+        if (response == null) {
+            return;
+        }
+        try {
+            response.body().close();
+        } catch (IOException e) {
+            // Eat it!
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package pl.aitwar.auriga.collection.routing;
+
+import java.util.Arrays;
+
+class LatencyWindow {
+    private static final int RECOMPUTE_EVERY = 64;
+
+    private final long[] samples;
+    private final double percentile;
+    private int next = 0;
+    private int count = 0;
+    private int sinceRecompute = 0;
+    private long threshold = -1;
+
+    LatencyWindow(final int size, final double percentile) {
+        this.samples = new long[size];
+        this.percentile = percentile;
+    }
+
+    synchronized void record(final long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+
+        if (++sinceRecompute >= RECOMPUTE_EVERY) {
+            sinceRecompute = 0;
+            threshold = -1;
+        }
+    }
+
+    // Fallback while there are too few samples
+    synchronized long percentile(final int minSamples, final long fallback) {
+        if (count < minSamples) {
+            return fallback;
+        }
+
+        if (threshold < 0) {
+            final long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            threshold = sorted[Math.min(count - 1, (int) Math.ceil(percentile * count) - 1)];
+        }
+        return threshold;
+    }
+}
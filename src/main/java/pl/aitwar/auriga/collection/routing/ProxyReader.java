@@ -0,0 +1,63 @@
+package pl.aitwar.auriga.collection.routing;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.jetbrains.annotations.NotNull;
+import pl.aitwar.auriga.collection.CollectionConfiguration;
+import pl.aitwar.auriga.nodes.model.Node;
+import pl.aitwar.auriga.transport.NodeTransport;
+import pl.aitwar.auriga.transport.model.NodeOperation;
+
+import java.io.InputStream;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+@Singleton
+public class ProxyReader {
+    private final NodeTransport nodeTransport;
+    private final ReadRouter readRouter;
+    private final LatencyWindow latencies;
+    private final int hedgeMinSamples;
+    private final long hedgeDefaultDelay;
+    private final long hedgeMinDelay;
+
+    @Inject
+    public ProxyReader(NodeTransport nodeTransport, ReadRouter readRouter, CollectionConfiguration configuration) {
+        this.nodeTransport = nodeTransport;
+        this.readRouter = readRouter;
+        this.latencies = new LatencyWindow(configuration.getHedgeWindowSize(), configuration.getHedgePercentile());
+        this.hedgeMinSamples = configuration.getHedgeMinSamples();
+        this.hedgeDefaultDelay = configuration.getHedgeDefaultDelay().toNanos();
+        this.hedgeMinDelay = configuration.getHedgeMinDelay().toNanos();
+    }
+
+    // The caller owns the body of the response
+    @NotNull
+    public CompletableFuture<HttpResponse<InputStream>> read(final String collectionName, final List<Node> replicas) {
+        final HedgedRead read = new HedgedRead(replicas, readRouter::route, node -> send(collectionName, node));
+        final CompletableFuture<HttpResponse<InputStream>> result = read.start();
+
+        if (replicas.size() > 1) {
+            final long delay = Math.max(hedgeMinDelay, latencies.percentile(hedgeMinSamples, hedgeDefaultDelay));
+            CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS).execute(read::hedge);
+        }
+        return result;
+    }
+
+    private CompletableFuture<HttpResponse<InputStream>> send(final String collectionName, final Node node) {
+        final HttpRequest request = nodeTransport.request("http://" + node.getAddress() + "/collections/" + collectionName)
+                .GET()
+                .build();
+
+        final long start = System.nanoTime();
+        return nodeTransport.send(node, NodeOperation.READ, request, HttpResponse.BodyHandlers.ofInputStream())
+                .whenComplete((response, ex) -> {
+                    if (ex == null) {
+                        latencies.record(System.nanoTime() - start);
+                    }
+                });
+    }
+}
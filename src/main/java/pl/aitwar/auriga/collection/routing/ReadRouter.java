@@ -0,0 +1,81 @@
+package pl.aitwar.auriga.collection.routing;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.jetbrains.annotations.NotNull;
+import pl.aitwar.auriga.collection.CollectionConfiguration;
+import pl.aitwar.auriga.nodes.NodeMetricsCache;
+import pl.aitwar.auriga.nodes.model.Node;
+import pl.aitwar.auriga.nodes.model.NodeUsageMetric;
+import pl.aitwar.auriga.transport.NodeTransport;
+import pl.aitwar.auriga.utils.eventbus.Event;
+import pl.aitwar.auriga.utils.eventbus.EventBus;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Power of two choices over recent redirects weighted by latency
+@Singleton
+public class ReadRouter {
+    private final NodeTransport nodeTransport;
+    private final NodeMetricsCache nodeMetricsCache;
+    private final long redirectHalfLife;
+    private final double defaultLatency;
+    private final Map<String, RedirectCounter> redirects = new ConcurrentHashMap<>();
+
+    @Inject
+    public ReadRouter(NodeTransport nodeTransport, NodeMetricsCache nodeMetricsCache, EventBus eventBus,
+                      CollectionConfiguration configuration) {
+        this.nodeTransport = nodeTransport;
+        this.nodeMetricsCache = nodeMetricsCache;
+        this.redirectHalfLife = configuration.getRedirectHalfLife().toNanos();
+        this.defaultLatency = configuration.getDefaultReadLatency().toNanos() / 1_000_000.0;
+
+        eventBus.listen(Event.NODE_REM, payload -> redirects.remove(payload));
+    }
+
+    @NotNull
+    public Optional<Node> route(final List<Node> replicas) {
+        if (replicas.isEmpty()) {
+            return Optional.empty();
+        }
+
+        final long now = System.nanoTime();
+        final Node chosen = replicas.size() == 1 ? replicas.get(0) : choose(replicas, now);
+        redirectsOf(chosen.getName()).increment(now);
+        return Optional.of(chosen);
+    }
+
+    private Node choose(final List<Node> replicas, final long now) {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int first = random.nextInt(replicas.size());
+        final int second = (first + 1 + random.nextInt(replicas.size() - 1)) % replicas.size();
+
+        final Node a = replicas.get(first);
+        final Node b = replicas.get(second);
+        final int byCost = Double.compare(costOf(a.getName(), now), costOf(b.getName(), now));
+        if (byCost != 0) {
+            return byCost < 0 ? a : b;
+        }
+        return reportedLoadOf(a.getName()) <= reportedLoadOf(b.getName()) ? a : b;
+    }
+
+    private double costOf(final String nodeName, final long now) {
+        final RedirectCounter counter = redirects.get(nodeName);
+        final double outstanding = counter == null ? 0 : counter.get(now);
+        return (1 + outstanding) * nodeTransport.getLatency(nodeName).orElse(defaultLatency);
+    }
+
+    private double reportedLoadOf(final String nodeName) {
+        return nodeMetricsCache.get(nodeName)
+                .map(NodeUsageMetric::getLoad)
+                .orElse(Double.MAX_VALUE);
+    }
+
+    private RedirectCounter redirectsOf(final String nodeName) {
+        return redirects.computeIfAbsent(nodeName, name -> new RedirectCounter(redirectHalfLife, System.nanoTime()));
+    }
+}
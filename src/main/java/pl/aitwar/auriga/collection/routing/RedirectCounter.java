@@ -0,0 +1,27 @@
+package pl.aitwar.auriga.collection.routing;
+
+// Redirects are never reported done, so each one fades out with the half-life
+class RedirectCounter {
+    private final double decayPerNano;
+    private double value;
+    private long updatedAt;
+
+    RedirectCounter(final long halfLifeNanos, final long now) {
+        this.decayPerNano = Math.log(2) / halfLifeNanos;
+        this.updatedAt = now;
+    }
+
+    synchronized void increment(final long now) {
+        value = valueAt(now) + 1;
+        updatedAt = now;
+    }
+
+    synchronized double get(final long now) {
+        return valueAt(now);
+    }
+
+    private double valueAt(final long now) {
+        final long elapsed = now - updatedAt;
+        return elapsed <= 0 ? value : value * Math.exp(-decayPerNano * elapsed);
+    }
+}
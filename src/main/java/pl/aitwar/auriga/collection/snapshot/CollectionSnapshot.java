@@ -0,0 +1,210 @@
+package pl.aitwar.auriga.collection.snapshot;
+
+import org.jetbrains.annotations.Nullable;
+import pl.aitwar.auriga.collection.model.CollectionDescriptor;
+import pl.aitwar.auriga.collection.model.NodeIds;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// magic, version, node names, collection count, record offsets sorted by name, records
+public class CollectionSnapshot {
+    static final int MAGIC = 0x41555243;
+    static final short VERSION = 1;
+    static final byte BLOCKED_FLAG = 1;
+
+    private final MappedByteBuffer buffer;
+    private final String[] nodes;
+    private final NodeIds registry;
+    private final int[] nodeIds;
+    private final int size;
+    private final int indexOffset;
+
+    private CollectionSnapshot(final MappedByteBuffer buffer, final NodeIds registry) throws IOException {
+        this.buffer = buffer;
+        this.registry = registry;
+        final int limit = buffer.limit();
+
+        check(limit >= 10, "truncated header");
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a collection snapshot");
+        }
+
+        final short version = buffer.getShort(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported collection snapshot version " + version);
+        }
+
+        int position = 6;
+        final int nodeCount = buffer.getInt(position);
+        position += 4;
+        check(nodeCount >= 0 && nodeCount <= (limit - position) / 2, "node count out of bounds");
+        nodes = new String[nodeCount];
+
+        for (int i = 0; i < nodes.length; i++) {
+            check(position <= limit - 2, "truncated node table");
+            final int length = Short.toUnsignedInt(buffer.getShort(position));
+            check(length <= limit - position - 2, "node name out of bounds");
+            nodes[i] = decode(position + 2, length);
+            position += 2 + length;
+        }
+
+        check(position <= limit - 4, "truncated record index");
+        nodeIds = Arrays.stream(nodes).mapToInt(registry::idOf).toArray();
+        size = buffer.getInt(position);
+        indexOffset = position + 4;
+        check(size >= 0 && size <= (limit - indexOffset) / 4, "record count out of bounds");
+
+        for (int index = 0; index < size; index++) {
+            checkRecord(recordOffset(index), limit);
+        }
+    }
+
+    private void checkRecord(final int offset, final int limit) throws IOException {
+        check(offset >= indexOffset + size * 4 && offset <= limit - 2, "record offset out of bounds");
+        final long replicasOffset = offset + 2L + Short.toUnsignedInt(buffer.getShort(offset)) + 9;
+        check(replicasOffset <= limit - 2, "truncated record");
+
+        final int replicaCount = Short.toUnsignedInt(buffer.getShort((int) replicasOffset));
+        check(replicasOffset + 2 + replicaCount * 2L <= limit, "truncated replica list");
+
+        for (int i = 0; i < replicaCount; i++) {
+            check(Short.toUnsignedInt(buffer.getShort((int) replicasOffset + 2 + i * 2)) < nodes.length,
+                    "unknown node index");
+        }
+    }
+
+    private static void check(final boolean valid, final String problem) throws IOException {
+        if (!valid) {
+            throw new IOException("Corrupt collection snapshot: " + problem);
+        }
+    }
+
+    // Registers the node names of the snapshot in the registry
+    public static CollectionSnapshot open(final Path path, final NodeIds registry) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new CollectionSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), registry);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String nameAt(final int index) {
+        final int offset = recordOffset(index);
+        return decode(offset + 2, Short.toUnsignedInt(buffer.getShort(offset)));
+    }
+
+    public CollectionDescriptor descriptorAt(final int index) {
+        final int offset = recordOffset(index);
+        final int nameLength = Short.toUnsignedInt(buffer.getShort(offset));
+        int position = offset + 2 + nameLength;
+
+        final CollectionDescriptor.CollectionDescriptorBuilder builder = CollectionDescriptor.builder()
+                .name(decode(offset + 2, nameLength))
+                .targetReplicationLevel(buffer.getInt(position))
+                .currentReplicationLevel(buffer.getInt(position + 4))
+                .blocked((buffer.get(position + 8) & BLOCKED_FLAG) != 0)
+                .nodeIds(registry);
+        position += 9;
+
+        final int[] replicas = new int[Short.toUnsignedInt(buffer.getShort(position))];
+        position += 2;
+
+        for (int i = 0; i < replicas.length; i++) {
+            replicas[i] = nodeIds[Short.toUnsignedInt(buffer.getShort(position))];
+            position += 2;
+        }
+
+        return builder.containingNodeIds(replicas).build();
+    }
+
+    public void forEachRecord(final RecordVisitor visitor) {
+        for (int index = 0; index < size; index++) {
+            final int offset = recordOffset(index);
+            final int nameLength = Short.toUnsignedInt(buffer.getShort(offset));
+            int position = offset + 2 + nameLength;
+
+            final int targetLevel = buffer.getInt(position);
+            final int currentLevel = buffer.getInt(position + 4);
+            position += 9;
+
+            final String[] replicas = new String[Short.toUnsignedInt(buffer.getShort(position))];
+            position += 2;
+
+            for (int i = 0; i < replicas.length; i++) {
+                replicas[i] = nodes[Short.toUnsignedInt(buffer.getShort(position))];
+                position += 2;
+            }
+
+            visitor.visit(decode(offset + 2, nameLength), targetLevel, currentLevel, replicas);
+        }
+    }
+
+    // -(insertion point) - 1 when absent
+    public int indexOf(final String collectionName) {
+        final byte[] key = collectionName.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = size - 1;
+
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int comparison = compareName(middle, key);
+
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+
+        return -(low + 1);
+    }
+
+    @Nullable
+    public CollectionDescriptor find(final String collectionName) {
+        final int index = indexOf(collectionName);
+        return index >= 0 ? descriptorAt(index) : null;
+    }
+
+    private int compareName(final int index, final byte[] key) {
+        final int offset = recordOffset(index);
+        final int length = Short.toUnsignedInt(buffer.getShort(offset));
+        final int common = Math.min(length, key.length);
+
+        for (int i = 0; i < common; i++) {
+            final int comparison = Integer.compare(Byte.toUnsignedInt(buffer.get(offset + 2 + i)), Byte.toUnsignedInt(key[i]));
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+
+        return Integer.compare(length, key.length);
+    }
+
+    private int recordOffset(final int index) {
+        return buffer.getInt(indexOffset + index * 4);
+    }
+
+    private String decode(final int offset, final int length) {
+        final byte[] bytes = new byte[length];
+        final ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @FunctionalInterface
+    public interface RecordVisitor {
+        void visit(String collectionName, int targetLevel, int currentLevel, String[] replicas);
+    }
+}
@@ -0,0 +1,94 @@
+package pl.aitwar.auriga.collection.snapshot;
+
+import pl.aitwar.auriga.collection.model.CollectionDescriptor;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+
+public final class CollectionSnapshotWriter {
+    private CollectionSnapshotWriter() {
+    }
+
+    public static void write(final Path path, final Collection<CollectionDescriptor> descriptors) throws IOException {
+        final Map<String, Integer> nodes = new LinkedHashMap<>();
+        final List<Record> records = new ArrayList<>(descriptors.size());
+
+        for (CollectionDescriptor descriptor : descriptors) {
+            final byte[] name = descriptor.getName().getBytes(StandardCharsets.UTF_8);
+            if (name.length > 0xFFFF) {
+                throw new IOException("Collection name '" + descriptor.getName() + "' is too long");
+            }
+
+            descriptor.getContainingNodesNames().forEach(node -> nodes.putIfAbsent(node, nodes.size()));
+            records.add(new Record(name, descriptor));
+        }
+
+        if (nodes.size() > 0xFFFF) {
+            throw new IOException("Too many nodes to store in a snapshot");
+        }
+
+        records.sort((left, right) -> Arrays.compareUnsigned(left.name, right.name));
+
+        final List<byte[]> nodeNames = new ArrayList<>(nodes.size());
+        nodes.keySet().forEach(node -> nodeNames.add(node.getBytes(StandardCharsets.UTF_8)));
+
+        int offset = 4 + 2 + 4 + 4 + records.size() * 4;
+        for (byte[] node : nodeNames) {
+            offset += 2 + node.length;
+        }
+
+        final FileOutputStream file = new FileOutputStream(path.toFile());
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(file, 64 * 1024))) {
+            output.writeInt(CollectionSnapshot.MAGIC);
+            output.writeShort(CollectionSnapshot.VERSION);
+
+            output.writeInt(nodeNames.size());
+            for (byte[] node : nodeNames) {
+                output.writeShort(node.length);
+                output.write(node);
+            }
+
+            output.writeInt(records.size());
+            for (Record record : records) {
+                output.writeInt(offset);
+                offset += record.size();
+            }
+
+            for (Record record : records) {
+                final CollectionDescriptor descriptor = record.descriptor;
+
+                output.writeShort(record.name.length);
+                output.write(record.name);
+                output.writeInt(descriptor.getTargetReplicationLevel());
+                output.writeInt(descriptor.getCurrentReplicationLevel());
+                output.writeByte(descriptor.isBlocked() ? CollectionSnapshot.BLOCKED_FLAG : 0);
+                output.writeShort(descriptor.getContainingNodesNames().size());
+                for (String node : descriptor.getContainingNodesNames()) {
+                    output.writeShort(nodes.get(node));
+                }
+            }
+
+            output.flush();
+            file.getFD().sync();
+        }
+    }
+
+    private static final class Record {
+        private final byte[] name;
+        private final CollectionDescriptor descriptor;
+
+        private Record(final byte[] name, final CollectionDescriptor descriptor) {
+            this.name = name;
+            this.descriptor = descriptor;
+        }
+
+        private int size() {
+            return 2 + name.length + 4 + 4 + 1 + 2 + descriptor.getContainingNodesNames().size() * 2;
+        }
+    }
+}
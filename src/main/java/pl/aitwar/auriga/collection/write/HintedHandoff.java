@@ -0,0 +1,180 @@
+package pl.aitwar.auriga.collection.write;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.aitwar.auriga.collection.CollectionConfiguration;
+import pl.aitwar.auriga.collection.CollectionMetadataStore;
+import pl.aitwar.auriga.collection.model.DocumentPayload;
+import pl.aitwar.auriga.metrics.Metrics;
+import pl.aitwar.auriga.nodes.NodesService;
+import pl.aitwar.auriga.collection.model.exceptions.DocumentAllocationException;
+import pl.aitwar.auriga.nodes.model.Node;
+import pl.aitwar.auriga.nodes.model.exceptions.UnknownNodeException;
+import pl.aitwar.auriga.transport.model.exceptions.NodeBusyException;
+import pl.aitwar.auriga.utils.BackgroundExecutors;
+
+import java.net.ConnectException;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Singleton
+public class HintedHandoff {
+    private static final Logger logger = LoggerFactory.getLogger(HintedHandoff.class);
+
+    private final NodeWritePipeline nodeWritePipeline;
+    private final NodesService nodesService;
+    private final CollectionMetadataStore metadataStore;
+    private final int maxHints;
+    private final long ttl;
+    private final Map<String, Deque<Hint>> hints = new ConcurrentHashMap<>();
+    private final Set<String> replaying = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger size = new AtomicInteger();
+
+    @Inject
+    public HintedHandoff(NodeWritePipeline nodeWritePipeline, NodesService nodesService, CollectionMetadataStore metadataStore,
+                         CollectionConfiguration configuration, Metrics metrics, BackgroundExecutors backgroundExecutors) {
+        this.nodeWritePipeline = nodeWritePipeline;
+        this.nodesService = nodesService;
+        this.metadataStore = metadataStore;
+        this.maxHints = configuration.getHintedHandoffMaxDocuments();
+        this.ttl = configuration.getHintedHandoffTtl().toNanos();
+
+        nodesService.onRemoved(this::drop);
+        metrics.gauge("auriga_hinted_handoff_documents", "Writes waiting to be delivered to replicas that missed them",
+                "", size::get);
+
+        final long interval = configuration.getHintedHandoffInterval().toMillis();
+        ScheduledExecutorService ex = backgroundExecutors.newScheduler();
+        ex.scheduleWithFixedDelay(this::replayAll, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    // Whether the write certainly did not reach the node, so replaying it cannot store it twice
+    public static boolean isRejected(final Throwable failure) {
+        final Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                ? failure.getCause()
+                : failure;
+        return cause instanceof NodeBusyException
+                || cause instanceof UnknownNodeException
+                || cause instanceof DocumentAllocationException && isRefusal(((DocumentAllocationException) cause).getStatus())
+                || cause instanceof ConnectException;
+    }
+
+    // Client errors other than a timeout, and unavailability, mean the node did not process the write
+    private static boolean isRefusal(final int status) {
+        return status / 100 == 4 && status != 408 || status == 503;
+    }
+
+    // Takes its own reference to the document
+    public void hint(final String nodeName, final String collectionName, final DocumentPayload document) {
+        if (size.incrementAndGet() > maxHints) {
+            size.decrementAndGet();
+            logger.warn("Hint for collection '{}' on node '{}' does not fit, dropping replica", collectionName, nodeName);
+            metadataStore.removeReplica(collectionName, nodeName);
+            return;
+        }
+
+        hints.computeIfAbsent(nodeName, name -> new ConcurrentLinkedDeque<>())
+                .add(new Hint(collectionName, document.retain(), System.nanoTime()));
+    }
+
+    // Including the write being delivered
+    public boolean hasHints(final String nodeName, final String collectionName) {
+        final Deque<Hint> pending = hints.get(nodeName);
+        return pending != null && pending.stream().anyMatch(hint -> hint.getCollectionName().equals(collectionName));
+    }
+
+    public void drop(final String nodeName, final String collectionName) {
+        final Deque<Hint> pending = hints.get(nodeName);
+        if (pending != null) {
+            pending.stream()
+                    .filter(hint -> hint.getCollectionName().equals(collectionName))
+                    .forEach(hint -> discard(pending, hint));
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    private void replayAll() {
+        hints.keySet().forEach(this::replay);
+    }
+
+    private void replay(final String nodeName) {
+        final Deque<Hint> pending = hints.get(nodeName);
+        final Node node = nodesService.getNode(nodeName);
+        if (pending == null || node == null || pending.isEmpty() || !replaying.add(nodeName)) {
+            return;
+        }
+
+        replayNext(node, pending);
+    }
+
+    private void replayNext(final Node node, final Deque<Hint> pending) {
+        Hint hint = pending.peek();
+        while (hint != null && System.nanoTime() - hint.getCreatedAt() > ttl) {
+            logger.warn("Hint for collection '{}' on node '{}' expired, dropping replica", hint.getCollectionName(), node.getName());
+            metadataStore.removeReplica(hint.getCollectionName(), node.getName());
+            discard(pending, hint);
+            hint = pending.peek();
+        }
+
+        if (hint == null) {
+            replaying.remove(node.getName());
+            return;
+        }
+
+        final Hint next = hint;
+
+        nodeWritePipeline.write(node, next.getCollectionName(), next.getDocument())
+                .whenComplete((nothing, ex) -> {
+                    if (ex != null && isRejected(ex)) {
+                        // Node still not answering, next round will try again
+                        replaying.remove(node.getName());
+                        return;
+                    }
+
+                    if (ex != null) {
+                        // Replaying a write the node may have stored would append the document twice
+                        logger.warn("Hint for collection '{}' on node '{}' may not have been stored, dropping replica",
+                                next.getCollectionName(), node.getName());
+                        metadataStore.removeReplica(next.getCollectionName(), node.getName());
+                        drop(node.getName(), next.getCollectionName());
+                        replayNext(node, pending);
+                        return;
+                    }
+
+                    discard(pending, next);
+                    replayNext(node, pending);
+                });
+    }
+
+    private void discard(final Deque<Hint> pending, final Hint hint) {
+        if (pending.remove(hint)) {
+            size.decrementAndGet();
+            hint.getDocument().release();
+        }
+    }
+
+    private void drop(final String nodeName) {
+        final Deque<Hint> pending = hints.remove(nodeName);
+        if (pending != null) {
+            pending.forEach(hint -> discard(pending, hint));
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Hint {
+        private final String collectionName;
+        private final DocumentPayload document;
+        private final long createdAt;
+    }
+}
@@ -0,0 +1,94 @@
+package pl.aitwar.auriga.collection.write;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.jetbrains.annotations.NotNull;
+import pl.aitwar.auriga.collection.CollectionConfiguration;
+import pl.aitwar.auriga.collection.model.DocumentPayload;
+import pl.aitwar.auriga.collection.model.exceptions.DocumentAllocationException;
+import pl.aitwar.auriga.nodes.NodesService;
+import pl.aitwar.auriga.nodes.model.Node;
+import pl.aitwar.auriga.nodes.model.exceptions.UnknownNodeException;
+import pl.aitwar.auriga.transport.NodeTransport;
+import pl.aitwar.auriga.transport.model.NodeOperation;
+import pl.aitwar.auriga.utils.BackgroundExecutors;
+import pl.aitwar.auriga.utils.eventbus.Event;
+import pl.aitwar.auriga.utils.eventbus.EventBus;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+
+@Singleton
+public class NodeWritePipeline {
+    private final Map<String, NodeWriteQueue> queues = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final NodeTransport nodeTransport;
+    private final NodesService nodesService;
+    private final CollectionConfiguration configuration;
+
+    @Inject
+    public NodeWritePipeline(NodeTransport nodeTransport, NodesService nodesService, EventBus eventBus,
+                             CollectionConfiguration configuration, BackgroundExecutors backgroundExecutors) {
+        this.nodeTransport = nodeTransport;
+        this.scheduler = backgroundExecutors.newScheduler();
+        this.nodesService = nodesService;
+        this.configuration = configuration;
+
+        eventBus.listen(Event.NODE_REM, nodeName -> {
+            final NodeWriteQueue queue = queues.remove(nodeName);
+            if (queue != null) {
+                queue.fail(new UnknownNodeException(nodeName));
+            }
+        });
+    }
+
+    @NotNull
+    public CompletableFuture<Void> write(final Node node, final String collectionName, final DocumentPayload document) {
+        Objects.requireNonNull(node);
+        Objects.requireNonNull(collectionName);
+        Objects.requireNonNull(document);
+
+        document.retain();
+
+        final CompletableFuture<Void> write = !configuration.isWriteBatching()
+                ? send(node, collectionName, List.of(document))
+                : queues.computeIfAbsent(node.getName(), name -> new NodeWriteQueue(name, this, scheduler,
+                configuration.getBatchMaxDocuments(), configuration.getBatchMaxBytes(),
+                configuration.getBatchLinger().toNanos(), configuration.getWriteQueueCapacity()))
+                .submit(collectionName, document);
+
+        return write.whenComplete((nothing, ex) -> document.release());
+    }
+
+    Node nodeOf(final String nodeName) {
+        return nodesService.getNode(nodeName);
+    }
+
+    CompletableFuture<Void> send(final Node node, final String collectionName, final List<DocumentPayload> documents) {
+        final String uri = "http://" + node.getAddress() + "/collections/" + collectionName;
+        final HttpRequest request = documents.size() == 1
+                ? nodeTransport.request(uri).POST(documents.get(0).publisher()).build()
+                : nodeTransport.request(uri + "/batch").POST(DocumentPayload.arrayPublisher(documents)).build();
+
+        return nodeTransport.send(node, NodeOperation.PUT, request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, ex) -> {
+                    // A node may answer an error before it read the whole body, which may still be being sent
+                    if (ex != null || response.statusCode() != 201) {
+                        documents.forEach(DocumentPayload::abandon);
+                    }
+                })
+                .thenCompose(response -> {
+                    if (response.statusCode() != 201) {
+                        return CompletableFuture.failedFuture(new DocumentAllocationException(collectionName, node.getName(), response.statusCode()));
+                    }
+
+                    return CompletableFuture.completedFuture(null);
+                });
+    }
+}
@@ -0,0 +1,120 @@
+package pl.aitwar.auriga.collection.write;
+
+import pl.aitwar.auriga.collection.model.DocumentPayload;
+import pl.aitwar.auriga.nodes.model.Node;
+import pl.aitwar.auriga.nodes.model.exceptions.UnknownNodeException;
+import pl.aitwar.auriga.transport.model.exceptions.NodeBusyException;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class NodeWriteQueue {
+    private final String nodeName;
+    private final NodeWritePipeline pipeline;
+    private final ScheduledExecutorService scheduler;
+    private final int maxDocuments;
+    private final long maxBytes;
+    private final long lingerNanos;
+    private final int capacity;
+    private final Queue<PendingWrite> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicBoolean flushPending = new AtomicBoolean();
+
+    NodeWriteQueue(final String nodeName, final NodeWritePipeline pipeline, final ScheduledExecutorService scheduler,
+                   final int maxDocuments, final long maxBytes, final long lingerNanos, final int capacity) {
+        this.nodeName = nodeName;
+        this.pipeline = pipeline;
+        this.scheduler = scheduler;
+        this.maxDocuments = maxDocuments;
+        this.maxBytes = maxBytes;
+        this.lingerNanos = lingerNanos;
+        this.capacity = capacity;
+    }
+
+    CompletableFuture<Void> submit(final String collectionName, final DocumentPayload document) {
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            return CompletableFuture.failedFuture(new NodeBusyException(nodeName));
+        }
+
+        final PendingWrite write = new PendingWrite(collectionName, document);
+        queue.add(write);
+        scheduleFlush();
+        return write.future;
+    }
+
+    void fail(final Throwable reason) {
+        PendingWrite write;
+        while ((write = queue.poll()) != null) {
+            size.decrementAndGet();
+            write.future.completeExceptionally(reason);
+        }
+    }
+
+    private void scheduleFlush() {
+        if (size.get() >= maxDocuments) {
+            if (flushPending.compareAndSet(false, true)) {
+                scheduler.execute(this::flush);
+            }
+        } else if (flushScheduled.compareAndSet(false, true)) {
+            scheduler.schedule(this::flush, lingerNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        flushPending.set(false);
+
+        final Map<String, List<PendingWrite>> batches = new LinkedHashMap<>();
+        int documents = 0;
+        long bytes = 0;
+        PendingWrite write;
+
+        while (documents < maxDocuments && bytes < maxBytes && (write = queue.poll()) != null) {
+            size.decrementAndGet();
+            batches.computeIfAbsent(write.collectionName, name -> new ArrayList<>()).add(write);
+            documents++;
+            bytes += write.document.getLength();
+        }
+
+        final Node node = pipeline.nodeOf(nodeName);
+        batches.forEach((collectionName, writes) -> {
+            if (node == null) {
+                writes.forEach(pending -> pending.future.completeExceptionally(new UnknownNodeException(nodeName)));
+                return;
+            }
+
+            final List<DocumentPayload> documentsBatch = new ArrayList<>(writes.size());
+            writes.forEach(pending -> documentsBatch.add(pending.document));
+
+            pipeline.send(node, collectionName, documentsBatch).whenComplete((nothing, ex) -> writes.forEach(pending -> {
+                if (ex != null) {
+                    pending.future.completeExceptionally(ex);
+                } else {
+                    pending.future.complete(null);
+                }
+            }));
+        });
+
+        if (!queue.isEmpty()) {
+            scheduleFlush();
+        }
+    }
+
+    private static final class PendingWrite {
+        private final String collectionName;
+        private final DocumentPayload document;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private PendingWrite(final String collectionName, final DocumentPayload document) {
+            this.collectionName = collectionName;
+            this.document = document;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package pl.aitwar.auriga.collection.write;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class WriteQuorum {
+    private WriteQuorum() {
+    }
+
+    public static CompletableFuture<Set<String>> await(final Map<String, ? extends CompletableFuture<?>> writes,
+                                                       final int required) {
+        final CompletableFuture<Set<String>> result = new CompletableFuture<>();
+        final Set<String> confirmed = ConcurrentHashMap.newKeySet();
+        final AtomicInteger successes = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+        final int tolerated = writes.size() - required;
+
+        if (required <= 0) {
+            result.complete(Set.of());
+            return result;
+        }
+
+        writes.forEach((nodeName, write) -> write.whenComplete((value, ex) -> {
+            if (ex == null) {
+                confirmed.add(nodeName);
+                if (successes.incrementAndGet() == required) {
+                    result.complete(Set.copyOf(confirmed));
+                }
+            } else if (failures.incrementAndGet() == tolerated + 1) {
+                result.completeExceptionally(ex instanceof CompletionException ? ex : new CompletionException(ex));
+            }
+        }));
+
+        return result;
+    }
+}
@@ -0,0 +1,57 @@
+package pl.aitwar.auriga.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class Histogram {
+    private static final double[] BOUNDS = {
+            0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+    private static final long[] BOUNDS_NANOS = new long[BOUNDS.length];
+
+    static {
+        for (int i = 0; i < BOUNDS.length; i++) {
+            BOUNDS_NANOS[i] = (long) (BOUNDS[i] * 1_000_000_000L);
+        }
+    }
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+    private final LongAdder sum = new LongAdder();
+
+    Histogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(final long nanos) {
+        int bucket = 0;
+        while (bucket < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        sum.add(nanos);
+    }
+
+    public long recordSince(final long startNanos) {
+        final long elapsed = System.nanoTime() - startNanos;
+        record(elapsed);
+        return elapsed;
+    }
+
+    void writeTo(final StringBuilder out, final String name, final String labels) {
+        long count = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            count += buckets[i].sum();
+            final String bound = i < BOUNDS.length ? String.valueOf(BOUNDS[i]) : "+Inf";
+            out.append(name).append("_bucket{");
+            if (!labels.isEmpty()) {
+                out.append(labels).append(',');
+            }
+            out.append("le=\"").append(bound).append("\"} ").append(count).append('\n');
+        }
+
+        final String suffix = labels.isEmpty() ? " " : "{" + labels + "} ";
+        out.append(name).append("_sum").append(suffix).append(sum.sum() / 1_000_000_000.0).append('\n');
+        out.append(name).append("_count").append(suffix).append(count).append('\n');
+    }
+}
@@ -0,0 +1,92 @@
+package pl.aitwar.auriga.metrics;
+
+import com.google.inject.Singleton;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+@Singleton
+public class Metrics {
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    @NotNull
+    public Histogram histogram(final String name, final String help, final String labels) {
+        return (Histogram) familyOf(name, help, "histogram").series.computeIfAbsent(labels, key -> new Histogram());
+    }
+
+    @NotNull
+    public LongAdder counter(final String name, final String help, final String labels) {
+        return (LongAdder) familyOf(name, help, "counter").series.computeIfAbsent(labels, key -> new LongAdder());
+    }
+
+    public void gauge(final String name, final String help, final String labels, final DoubleSupplier value) {
+        familyOf(name, help, "gauge").series.put(labels, value);
+    }
+
+    @NotNull
+    public String scrape() {
+        final StringBuilder out = new StringBuilder(4096);
+        families.forEach((name, family) -> {
+            out.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+            family.series.forEach((labels, metric) -> {
+                if (metric instanceof Histogram) {
+                    ((Histogram) metric).writeTo(out, name, labels);
+                    return;
+                }
+
+                out.append(name);
+                if (!labels.isEmpty()) {
+                    out.append('{').append(labels).append('}');
+                }
+                out.append(' ');
+                if (metric instanceof LongAdder) {
+                    out.append(((LongAdder) metric).sum());
+                } else {
+                    out.append(((DoubleSupplier) metric).getAsDouble());
+                }
+                out.append('\n');
+            });
+        });
+        return out.toString();
+    }
+
+    @NotNull
+    public static String labels(final String... namesAndValues) {
+        final StringBuilder labels = new StringBuilder();
+        for (int i = 0; i + 1 < namesAndValues.length; i += 2) {
+            if (labels.length() > 0) {
+                labels.append(',');
+            }
+            labels.append(namesAndValues[i]).append("=\"").append(escape(namesAndValues[i + 1])).append('"');
+        }
+        return labels.toString();
+    }
+
+    private static String escape(final String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private Family familyOf(final String name, final String help, final String type) {
+        final Family family = families.computeIfAbsent(name, key -> new Family(help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("Metric '" + name + "' is a " + family.type + ", not a " + type);
+        }
+        return family;
+    }
+
+    private static final class Family {
+        private final String help;
+        private final String type;
+        private final Map<String, Object> series = new ConcurrentHashMap<>();
+
+        private Family(final String help, final String type) {
+            this.help = help;
+            this.type = type;
+        }
+    }
+}
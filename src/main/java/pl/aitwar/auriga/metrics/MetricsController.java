@@ -0,0 +1,22 @@
+package pl.aitwar.auriga.metrics;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.javalin.Context;
+
+@Singleton
+public class MetricsController {
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final Metrics metrics;
+
+    @Inject
+    public MetricsController(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public void scrape(Context context) {
+        context.contentType(CONTENT_TYPE);
+        context.result(metrics.scrape());
+    }
+}
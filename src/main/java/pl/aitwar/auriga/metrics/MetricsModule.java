@@ -0,0 +1,15 @@
+package pl.aitwar.auriga.metrics;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.multibindings.Multibinder;
+import pl.aitwar.auriga.utils.Routing;
+
+public class MetricsModule extends AbstractModule {
+    @Override
+    protected void configure() {
+        bind(Metrics.class);
+        bind(RequestMetrics.class);
+        bind(MetricsController.class);
+        Multibinder.newSetBinder(binder(), Routing.class).addBinding().to(MetricsRouting.class);
+    }
+}
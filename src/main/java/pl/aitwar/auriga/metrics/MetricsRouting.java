@@ -0,0 +1,29 @@
+package pl.aitwar.auriga.metrics;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.javalin.Javalin;
+import pl.aitwar.auriga.utils.Routing;
+
+import static io.javalin.apibuilder.ApiBuilder.get;
+
+@Singleton
+public class MetricsRouting extends Routing<MetricsController> {
+    private final Javalin javalin;
+    private final RequestMetrics requestMetrics;
+
+    @Inject
+    public MetricsRouting(Javalin javalin, RequestMetrics requestMetrics) {
+        this.javalin = javalin;
+        this.requestMetrics = requestMetrics;
+    }
+
+    @Override
+    public void bindRoutes() {
+        javalin.before(requestMetrics::before);
+        javalin.after(requestMetrics::after);
+        javalin.routes(() -> {
+            get("metrics", ctx -> getController().scrape(ctx));
+        });
+    }
+}
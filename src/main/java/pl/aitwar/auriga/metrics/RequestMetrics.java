@@ -0,0 +1,52 @@
+package pl.aitwar.auriga.metrics;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.javalin.Context;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Javalin runs after-handlers once an asynchronous result completes, so timings cover the whole request
+@Singleton
+public class RequestMetrics {
+    private static final String START_ATTRIBUTE = "metrics.start";
+    private static final String UNMATCHED = "unmatched";
+
+    private final Metrics metrics;
+    private final LongAdder inFlight = new LongAdder();
+    private final Map<String, Histogram> durations = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> responses = new ConcurrentHashMap<>();
+
+    @Inject
+    public RequestMetrics(Metrics metrics) {
+        this.metrics = metrics;
+
+        metrics.gauge("auriga_http_requests_in_flight", "HTTP requests being handled", "", inFlight::sum);
+    }
+
+    public void before(final Context context) {
+        inFlight.increment();
+        context.attribute(START_ATTRIBUTE, System.nanoTime());
+    }
+
+    public void after(final Context context) {
+        final Long start = context.attribute(START_ATTRIBUTE);
+        if (start == null) {
+            return;
+        }
+        inFlight.decrement();
+
+        final String path = context.endpointHandlerPath();
+        final String route = context.method() + " " + (path == null ? UNMATCHED : path);
+        final int status = context.status();
+
+        durations.computeIfAbsent(route, key -> metrics.histogram("auriga_http_request_duration_seconds",
+                "Time spent handling HTTP requests", Metrics.labels("route", key)))
+                .recordSince(start);
+        responses.computeIfAbsent(route + " " + status, key -> metrics.counter("auriga_http_responses_total",
+                "HTTP responses sent", Metrics.labels("route", route, "status", String.valueOf(status))))
+                .increment();
+    }
+}
@@ -0,0 +1,56 @@
+package pl.aitwar.auriga.nodes;
+
+import pl.aitwar.auriga.nodes.model.NodeUsageMetric;
+import pl.aitwar.auriga.nodes.model.exceptions.NoFreeNodeException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+class FreeNodeSelection {
+    private final int candidates;
+    private final int enough;
+    private final AtomicInteger answered = new AtomicInteger();
+    private final AtomicInteger usable = new AtomicInteger();
+    private final AtomicReference<NodeUsageMetric> best = new AtomicReference<>();
+    private final CompletableFuture<NodeUsageMetric> result = new CompletableFuture<>();
+
+    FreeNodeSelection(final int candidates, final int enough) {
+        this.candidates = candidates;
+        this.enough = enough <= 0 ? candidates : Math.min(enough, candidates);
+
+        if (candidates == 0) {
+            finish();
+        }
+    }
+
+    CompletableFuture<NodeUsageMetric> getResult() {
+        return result;
+    }
+
+    void offer(final NodeUsageMetric metric) {
+        if (metric != null && metric.isEmpty()) {
+            best.accumulateAndGet(metric, (current, candidate) ->
+                    current == null || loadOf(candidate) < loadOf(current) ? candidate : current);
+            usable.incrementAndGet();
+        }
+
+        if (answered.incrementAndGet() == candidates || usable.get() >= enough) {
+            finish();
+        }
+    }
+
+    private void finish() {
+        final NodeUsageMetric winner = best.get();
+
+        if (winner != null) {
+            result.complete(winner);
+        } else {
+            result.completeExceptionally(new NoFreeNodeException());
+        }
+    }
+
+    private static double loadOf(final NodeUsageMetric metric) {
+        return metric.getLoad() != null ? metric.getLoad() : Double.MAX_VALUE;
+    }
+}
@@ -0,0 +1,131 @@
+package pl.aitwar.auriga.nodes;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.aitwar.auriga.metrics.Metrics;
+import pl.aitwar.auriga.nodes.model.NodeMetricsCacheStatistics;
+import pl.aitwar.auriga.nodes.model.NodeUsageMetric;
+import pl.aitwar.auriga.utils.BackgroundExecutors;
+import pl.aitwar.auriga.utils.eventbus.Event;
+import pl.aitwar.auriga.utils.eventbus.EventBus;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+@Singleton
+public class NodeMetricsCache {
+    private static final Logger logger = LoggerFactory.getLogger(NodeMetricsCache.class);
+    private final Map<String, CachedMetric> metrics = new ConcurrentHashMap<>();
+    private final LongAdder hits;
+    private final LongAdder staleHits;
+    private final LongAdder misses;
+    private final LongAdder refreshFailures;
+    private final NodesService nodesService;
+    private final EventBus eventBus;
+    private final long ttl;
+    private final long maxStaleness;
+    private final long refreshInterval;
+
+    @Inject
+    public NodeMetricsCache(NodesService nodesService, EventBus eventBus, NodesConfiguration configuration,
+                            Metrics metrics, BackgroundExecutors backgroundExecutors) {
+        this.nodesService = nodesService;
+        this.eventBus = eventBus;
+        this.ttl = configuration.getMetricsTtl().toNanos();
+        this.maxStaleness = configuration.getMetricsMaxStaleness().toNanos();
+        this.refreshInterval = configuration.getMetricsRefreshInterval().toMillis();
+        this.hits = lookups(metrics, "hit");
+        this.staleHits = lookups(metrics, "stale_hit");
+        this.misses = lookups(metrics, "miss");
+        this.refreshFailures = metrics.counter("auriga_node_metrics_refresh_failures_total",
+                "Failed refreshes of cached node usage metrics", "");
+
+        setUp(backgroundExecutors);
+    }
+
+    @NotNull
+    public Optional<NodeUsageMetric> get(final String nodeName) {
+        final CachedMetric cached = metrics.get(nodeName);
+
+        if (cached == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+
+        final long age = System.nanoTime() - cached.fetchedAt;
+
+        if (age <= ttl) {
+            hits.increment();
+        } else if (age <= maxStaleness) {
+            staleHits.increment();
+        } else {
+            misses.increment();
+            return Optional.empty();
+        }
+
+        return Optional.of(cached.metric);
+    }
+
+    public void update(final String nodeName, final NodeUsageMetric metric) {
+        metrics.put(nodeName, new CachedMetric(metric, System.nanoTime()));
+    }
+
+    public void forget(final String nodeName) {
+        metrics.remove(nodeName);
+    }
+
+    @NotNull
+    public NodeMetricsCacheStatistics getStatistics() {
+        return new NodeMetricsCacheStatistics(hits.sum(), staleHits.sum(), misses.sum(), refreshFailures.sum());
+    }
+
+    private static LongAdder lookups(final Metrics metrics, final String result) {
+        return metrics.counter("auriga_node_metrics_cache_lookups_total", "Lookups of cached node usage metrics",
+                Metrics.labels("result", result));
+    }
+
+    private void refresh(final String nodeName) {
+        nodesService.getNodeUsage(nodeName)
+                .whenComplete((metric, ex) -> {
+                    if (ex != null) {
+                        refreshFailures.increment();
+                        logger.debug("Failed to refresh usage metric of '{}' node", nodeName);
+                        return;
+                    }
+
+                    if (nodesService.getNode(nodeName) != null) {
+                        update(nodeName, metric);
+                    }
+                });
+    }
+
+    private void refreshAll() {
+        nodesService.getNodes().forEach(node -> refresh(node.getName()));
+        logger.debug("Node metrics cache statistics: {}", getStatistics());
+    }
+
+    private void setUp(final BackgroundExecutors backgroundExecutors) {
+        eventBus.listenAsync(Event.NODE_ADD, this::refresh);
+        eventBus.listen(Event.NODE_REM, this::forget);
+
+        ScheduledExecutorService ex = backgroundExecutors.newScheduler();
+        ex.scheduleAtFixedRate(this::refreshAll, refreshInterval, refreshInterval, TimeUnit.MILLISECONDS);
+    }
+
+    private static final class CachedMetric {
+        private final NodeUsageMetric metric;
+        private final long fetchedAt;
+
+        private CachedMetric(final NodeUsageMetric metric, final long fetchedAt) {
+            this.metric = metric;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+}
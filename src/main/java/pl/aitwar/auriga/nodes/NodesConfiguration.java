@@ -0,0 +1,38 @@
+package pl.aitwar.auriga.nodes;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Duration;
+
+@Data
+@Builder
+public class NodesConfiguration {
+    @Builder.Default
+    private int statusPort = 7000;
+    // Probes status on the port of the node address instead, for nodes serving everything on one port
+    @Builder.Default
+    private boolean statusOnNodePort = false;
+    @Builder.Default
+    private Duration metricsRefreshInterval = Duration.ofSeconds(5);
+    @Builder.Default
+    private Duration metricsTtl = Duration.ofSeconds(10);
+    @Builder.Default
+    private Duration metricsMaxStaleness = Duration.ofSeconds(60);
+    @Builder.Default
+    private Duration freeNodeProbeTimeout = Duration.ofSeconds(2);
+    @Builder.Default
+    private int freeNodeEnoughAnswers = 5;
+    @Builder.Default
+    private Duration healthProbeInterval = Duration.ofSeconds(1);
+    @Builder.Default
+    private Duration healthProbeTimeout = Duration.ofSeconds(2);
+    @Builder.Default
+    private double phiThreshold = 8.0;
+    @Builder.Default
+    private int heartbeatWindowSize = 100;
+    @Builder.Default
+    private Duration minHeartbeatStdDeviation = Duration.ofMillis(100);
+    @Builder.Default
+    private Duration acceptableHeartbeatPause = Duration.ofSeconds(3);
+}
@@ -2,13 +2,17 @@ package pl.aitwar.auriga.nodes;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.multibindings.Multibinder;
+import pl.aitwar.auriga.nodes.health.NodeHealthMonitor;
 import pl.aitwar.auriga.utils.Routing;
 
 public class NodesModule extends AbstractModule {
     @Override
     protected void configure() {
         bind(NodesController.class);
+        bind(NodesConfiguration.class).toInstance(NodesConfiguration.builder().build());
         bind(NodesService.class);
+        bind(NodeMetricsCache.class).asEagerSingleton();
+        bind(NodeHealthMonitor.class).asEagerSingleton();
         Multibinder.newSetBinder(binder(), Routing.class).addBinding().to(NodesRouting.class);
     }
 }
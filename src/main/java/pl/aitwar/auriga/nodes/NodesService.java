@@ -9,35 +9,42 @@ import org.slf4j.LoggerFactory;
 import pl.aitwar.auriga.nodes.model.Node;
 import pl.aitwar.auriga.nodes.model.NodeRegistration;
 import pl.aitwar.auriga.nodes.model.NodeUsageMetric;
-import pl.aitwar.auriga.nodes.model.exceptions.NoFreeNodeException;
 import pl.aitwar.auriga.nodes.model.exceptions.NodeAlreadyRegisteredException;
 import pl.aitwar.auriga.nodes.model.exceptions.UnknownNodeException;
+import pl.aitwar.auriga.transport.NodeTransport;
+import pl.aitwar.auriga.transport.model.NodeOperation;
 import pl.aitwar.auriga.utils.eventbus.Event;
 import pl.aitwar.auriga.utils.eventbus.EventBus;
 
 import java.io.IOException;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.function.Predicate;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Singleton
 public class NodesService {
     private static final Logger logger = LoggerFactory.getLogger(NodesService.class);
-    private final Map<String, Node> nodeAddresses = new HashMap<>();
+    private final Map<String, Node> nodeAddresses = new ConcurrentHashMap<>();
+    private final Map<String, Long> generations = new ConcurrentHashMap<>();
+    private final AtomicLong registrations = new AtomicLong();
+    private final List<RemovalCleanup> removalCleanups = new CopyOnWriteArrayList<>();
     private final ObjectMapper objectMapper;
     private final EventBus eventBus;
+    private final NodeTransport nodeTransport;
+    private final NodesConfiguration configuration;
 
     @Inject
-    public NodesService(ObjectMapper objectMapper, EventBus eventBus) {
+    public NodesService(ObjectMapper objectMapper, EventBus eventBus, NodeTransport nodeTransport,
+                        NodesConfiguration configuration) {
         this.objectMapper = objectMapper;
         this.eventBus = eventBus;
-
-        setUp();
+        this.nodeTransport = nodeTransport;
+        this.configuration = configuration;
     }
 
     public Collection<Node> getNodes() {
@@ -51,22 +58,25 @@ public class NodesService {
 
     @NotNull
     public CompletableFuture<NodeUsageMetric> getNodeUsage(final String name) {
-        logger.info("Getting usage metric of '{}' node", name);
+        logger.debug("Getting usage metric of '{}' node", name);
         Objects.requireNonNull(name);
-        String address = nodeAddresses.get(name).getAddress();
+        final Node node = nodeAddresses.get(name);
 
-        if (address == null) {
+        if (node == null || node.getAddress() == null) {
             return CompletableFuture.failedFuture(new UnknownNodeException(name));
         }
 
-        HttpClient client = HttpClient.newBuilder()
-                .build();
+        final String address = node.getAddress();
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create("http://" + address + ":7000/status"))
-                .build();
+        final HttpRequest request;
+        try {
+            request = nodeTransport.request(statusUriOf(address, configuration.getStatusPort(), configuration.isStatusOnNodePort()))
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
 
-        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+        return nodeTransport.send(node, NodeOperation.STATUS, request, HttpResponse.BodyHandlers.ofString())
                 .thenApply(HttpResponse::body)
                 .thenApply(body -> {
                     try {
@@ -82,6 +92,18 @@ public class NodesService {
                 });
     }
 
+    // IPv6 hosts come in brackets, a bare IPv6 literal is a host
+    static String statusUriOf(final String address, final int statusPort, final boolean onNodePort) {
+        final URI uri = URI.create("http://" + address);
+        if (uri.getHost() == null) {
+            return "http://[" + address + "]:" + statusPort + "/status";
+        }
+        if (onNodePort && uri.getPort() != -1) {
+            return "http://" + address + "/status";
+        }
+        return "http://" + uri.getHost() + ":" + statusPort + "/status";
+    }
+
     public void registerNode(final NodeRegistration nodeRegistration) throws NodeAlreadyRegisteredException {
         final String name = nodeRegistration.getName();
         final String address = nodeRegistration.getAddress();
@@ -95,7 +117,9 @@ public class NodesService {
             throw new NodeAlreadyRegisteredException(name);
         }
 
-        nodeAddresses.put(name, new Node(name, address));
+        removalCleanups.forEach(cleanup -> cleanup.registering(name));
+        generations.put(name, registrations.incrementAndGet());
+        nodeAddresses.put(name, new Node(name, address, capacityOf(nodeRegistration)));
         eventBus.publish(Event.NODE_ADD, name);
     }
 
@@ -112,34 +136,40 @@ public class NodesService {
             throw new UnknownNodeException(name);
         }
 
-        nodeAddresses.put(name, new Node(name, address));
+        nodeAddresses.put(name, new Node(name, address, capacityOf(nodeRegistration)));
+        eventBus.publish(Event.NODE_UPD, name);
+    }
+
+    private static int capacityOf(final NodeRegistration nodeRegistration) {
+        final Integer capacity = nodeRegistration.getCapacity();
+        return capacity == null || capacity < 1 ? Node.DEFAULT_CAPACITY : capacity;
     }
 
     @NotNull
     public CompletableFuture<NodeUsageMetric> getFreeNode(final Set<String> blacklist) {
         if (blacklist != null) {
-            logger.info("Searching for empty node with blacklist provided");
+            logger.debug("Searching for empty node with blacklist provided");
         } else {
-            logger.info("Searching for empty node");
+            logger.debug("Searching for empty node");
         }
 
-        return nodeAddresses.keySet()
+        final List<String> candidates = nodeAddresses.keySet()
                 .stream()
-                .filter(nodeName -> {
-                    if (blacklist == null) {
-                        return true;
-                    } else {
-                        return !blacklist.contains(nodeName);
+                .filter(nodeName -> blacklist == null || !blacklist.contains(nodeName))
+                .collect(Collectors.toList());
+
+        final FreeNodeSelection selection = new FreeNodeSelection(candidates.size(), configuration.getFreeNodeEnoughAnswers());
+        final long timeout = configuration.getFreeNodeProbeTimeout().toMillis();
+
+        candidates.forEach(nodeName -> getNodeUsage(nodeName)
+                .orTimeout(timeout, TimeUnit.MILLISECONDS)
+                .whenComplete((metric, ex) -> selection.offer(ex == null ? metric : null)));
+
+        return selection.getResult()
+                .whenComplete((metric, ex) -> {
+                    if (ex != null) {
+                        logger.warn("No free nodes found");
                     }
-                })
-                .map(this::getNodeUsage)
-                .map(CompletableFuture::join)
-                .filter(NodeUsageMetric::isEmpty)
-                .min(Comparator.comparingDouble(NodeUsageMetric::getLoad))
-                .map(CompletableFuture::completedFuture)
-                .orElseGet(() -> {
-                    logger.warn("No free nodes found");
-                    return CompletableFuture.failedFuture(new NoFreeNodeException());
                 });
     }
 
@@ -147,47 +177,50 @@ public class NodesService {
         logger.info("Unregistering '{}' node", name);
         Objects.requireNonNull(name);
 
-        if (!nodeAddresses.containsKey(name)) {
+        if (nodeAddresses.remove(name) == null) {
             throw new UnknownNodeException(name);
         }
 
-        nodeAddresses.remove(name);
+        nodeTransport.forget(name);
+        final Long generation = generations.get(name);
+        removalCleanups.forEach(cleanup -> cleanup.removed(name, generation));
         eventBus.publish(Event.NODE_REM, name);
     }
 
-    @NotNull
-    public void checkNodes() {
-        logger.info("Checking nodes status");
+    // A removal delivered after the name registered again was already cleaned up by that registration
+    public void onRemoved(final Consumer<String> cleanup) {
+        final RemovalCleanup removalCleanup = new RemovalCleanup(cleanup);
+        removalCleanups.add(removalCleanup);
+        eventBus.listenAsync(Event.NODE_REM, removalCleanup::delivered);
+    }
 
-        Set<String> livingOnes = nodeAddresses.keySet()
-                .stream()
-                .map(address -> {
-                    try {
-                        return getNodeUsage(address).get();
-                    } catch (Exception ex) {
-                        return null;
-                    }
-                })
-                .filter(Objects::nonNull)
-                .map(NodeUsageMetric::getName)
-                .collect(Collectors.toSet());
+    private final class RemovalCleanup {
+        private final Map<String, Long> pending = new ConcurrentHashMap<>();
+        private final Consumer<String> cleanup;
 
-        logger.info("{} nodes found dead", nodeAddresses.size() - livingOnes.size());
+        private RemovalCleanup(final Consumer<String> cleanup) {
+            this.cleanup = cleanup;
+        }
 
-        nodeAddresses.keySet()
-                .stream()
-                .filter(Predicate.not(livingOnes::contains))
-                .forEach(nodeName -> {
-                    try {
-                        forgetNode(nodeName);
-                    } catch (UnknownNodeException e) {
-                        // Eat it!
-                    }
-                });
-    }
+        void removed(final String name, final Long generation) {
+            pending.put(name, generation);
+        }
 
-    private void setUp() {
-        ScheduledExecutorService ex = Executors.newSingleThreadScheduledExecutor();
-        ex.scheduleAtFixedRate(this::checkNodes, 60, 60, TimeUnit.SECONDS);
+        synchronized void registering(final String name) {
+            if (pending.remove(name) != null) {
+                logger.info("Cleaning up after removed '{}' node before it registers again", name);
+                cleanup.accept(name);
+            }
+        }
+
+        synchronized void delivered(final String name) {
+            final Long generation = pending.get(name);
+            if (generation == null || !generation.equals(generations.get(name)) || nodeAddresses.containsKey(name)) {
+                logger.debug("Skipping late removal of '{}' node, a newer generation is registered", name);
+                return;
+            }
+            pending.remove(name);
+            cleanup.accept(name);
+        }
     }
 }
@@ -0,0 +1,115 @@
+package pl.aitwar.auriga.nodes.health;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.aitwar.auriga.nodes.NodeMetricsCache;
+import pl.aitwar.auriga.nodes.NodesConfiguration;
+import pl.aitwar.auriga.nodes.NodesService;
+import pl.aitwar.auriga.nodes.model.Node;
+import pl.aitwar.auriga.nodes.model.exceptions.UnknownNodeException;
+import pl.aitwar.auriga.utils.BackgroundExecutors;
+import pl.aitwar.auriga.utils.eventbus.Event;
+import pl.aitwar.auriga.utils.eventbus.EventBus;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Singleton
+public class NodeHealthMonitor {
+    private static final Logger logger = LoggerFactory.getLogger(NodeHealthMonitor.class);
+    private final Map<String, PhiAccrualFailureDetector> detectors = new ConcurrentHashMap<>();
+    private final Set<String> probing = ConcurrentHashMap.newKeySet();
+    private final NodesService nodesService;
+    private final NodeMetricsCache nodeMetricsCache;
+    private final EventBus eventBus;
+    private final NodesConfiguration configuration;
+
+    @Inject
+    public NodeHealthMonitor(NodesService nodesService, NodeMetricsCache nodeMetricsCache, EventBus eventBus,
+                             NodesConfiguration configuration, BackgroundExecutors backgroundExecutors) {
+        this.nodesService = nodesService;
+        this.nodeMetricsCache = nodeMetricsCache;
+        this.eventBus = eventBus;
+        this.configuration = configuration;
+
+        setUp(backgroundExecutors);
+    }
+
+    public double getPhi(final String nodeName) {
+        final PhiAccrualFailureDetector detector = detectors.get(nodeName);
+        return detector != null ? detector.phi(now()) : 0.0;
+    }
+
+    private void probe(final Node node) {
+        final String nodeName = node.getName();
+
+        if (!probing.add(nodeName)) {
+            return;
+        }
+
+        nodesService.getNodeUsage(nodeName)
+                .orTimeout(configuration.getHealthProbeTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((metric, ex) -> {
+                    probing.remove(nodeName);
+
+                    if (ex != null) {
+                        logger.debug("Node '{}' did not answer the health probe", nodeName);
+                        return;
+                    }
+
+                    final PhiAccrualFailureDetector detector = detectors.get(nodeName);
+                    if (detector != null) {
+                        detector.heartbeat(now());
+                        nodeMetricsCache.update(nodeName, metric);
+                    }
+                });
+    }
+
+    private void checkNodes() {
+        final long now = now();
+
+        nodesService.getNodes().forEach(node -> {
+            final PhiAccrualFailureDetector detector = detectors.computeIfAbsent(node.getName(), name -> createDetector(now));
+
+            if (detector.isAvailable(now, configuration.getPhiThreshold())) {
+                probe(node);
+                return;
+            }
+
+            logger.warn("Node '{}' found dead, phi reached {}", node.getName(), detector.phi(now));
+            try {
+                nodesService.forgetNode(node.getName());
+            } catch (UnknownNodeException e) {
+                // Eat it!
+            }
+        });
+    }
+
+    private PhiAccrualFailureDetector createDetector(final long now) {
+        return new PhiAccrualFailureDetector(
+                configuration.getHeartbeatWindowSize(),
+                configuration.getMinHeartbeatStdDeviation().toMillis(),
+                configuration.getAcceptableHeartbeatPause().toMillis(),
+                configuration.getHealthProbeInterval().toMillis(),
+                now
+        );
+    }
+
+    private static long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    private void setUp(final BackgroundExecutors backgroundExecutors) {
+        eventBus.listen(Event.NODE_ADD, payload -> detectors.put(payload, createDetector(now())));
+        eventBus.listen(Event.NODE_REM, payload -> detectors.remove(payload));
+
+        final long interval = configuration.getHealthProbeInterval().toMillis();
+        ScheduledExecutorService ex = backgroundExecutors.newScheduler();
+        ex.scheduleAtFixedRate(this::checkNodes, interval, interval, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,75 @@
+package pl.aitwar.auriga.nodes.health;
+
+// Hayashibara et al., timestamps in milliseconds
+public class PhiAccrualFailureDetector {
+    private final double[] intervals;
+    private final double minStdDeviation;
+    private final double acceptableHeartbeatPause;
+    private int size;
+    private int next;
+    private double sum;
+    private double squaresSum;
+    private long lastHeartbeat;
+
+    public PhiAccrualFailureDetector(final int windowSize, final long minStdDeviation,
+                                     final long acceptableHeartbeatPause, final long firstHeartbeatEstimate,
+                                     final long now) {
+        if (windowSize < 2) {
+            throw new IllegalArgumentException("Window size must be greater or equal to 2");
+        }
+
+        this.intervals = new double[windowSize];
+        this.minStdDeviation = minStdDeviation;
+        this.acceptableHeartbeatPause = acceptableHeartbeatPause;
+        this.lastHeartbeat = now;
+
+        // Bootstrap the history so that the first real intervals are judged sensibly
+        final double deviation = firstHeartbeatEstimate / 4.0;
+        record(firstHeartbeatEstimate - deviation);
+        record(firstHeartbeatEstimate + deviation);
+    }
+
+    public synchronized void heartbeat(final long now) {
+        final long interval = now - lastHeartbeat;
+        lastHeartbeat = now;
+
+        if (interval > 0) {
+            record(interval);
+        }
+    }
+
+    public synchronized double phi(final long now) {
+        final double timeDiff = now - lastHeartbeat;
+        final double mean = sum / size + acceptableHeartbeatPause;
+        final double variance = squaresSum / size - (sum / size) * (sum / size);
+        final double stdDeviation = Math.max(Math.sqrt(Math.max(variance, 0.0)), minStdDeviation);
+
+        // Logistic approximation of the normal cumulative distribution function
+        final double y = (timeDiff - mean) / stdDeviation;
+        final double e = Math.exp(-y * (1.5976 + 0.070566 * y * y));
+
+        if (timeDiff > mean) {
+            return -Math.log10(e / (1.0 + e));
+        }
+        return -Math.log10(1.0 - 1.0 / (1.0 + e));
+    }
+
+    public boolean isAvailable(final long now, final double threshold) {
+        return phi(now) < threshold;
+    }
+
+    private void record(final double interval) {
+        if (size == intervals.length) {
+            final double evicted = intervals[next];
+            sum -= evicted;
+            squaresSum -= evicted * evicted;
+        } else {
+            size++;
+        }
+
+        intervals[next] = interval;
+        next = (next + 1) % intervals.length;
+        sum += interval;
+        squaresSum += interval * interval;
+    }
+}
@@ -6,10 +6,17 @@ import lombok.Data;
 @Data
 @AllArgsConstructor
 public class Node {
+    public static final int DEFAULT_CAPACITY = 1;
+
     private String name;
     private String address;
+    private int capacity = DEFAULT_CAPACITY;
 
     public Node(String name) {
         this.name = name;
     }
+
+    public Node(String name, String address) {
+        this(name, address, DEFAULT_CAPACITY);
+    }
 }
@@ -0,0 +1,13 @@
+package pl.aitwar.auriga.nodes.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class NodeMetricsCacheStatistics {
+    private long hits;
+    private long staleHits;
+    private long misses;
+    private long refreshFailures;
+}
@@ -8,4 +8,6 @@ public class NodeRegistration {
     @JsonInclude(JsonInclude.Include.NON_NULL)
     private String address;
     private String name;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer capacity;
 }
@@ -0,0 +1,28 @@
+package pl.aitwar.auriga.transport;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+class LatencyEstimate {
+    private static final long UNSET = Double.doubleToRawLongBits(Double.NaN);
+
+    private final double smoothing;
+    private final AtomicLong average = new AtomicLong(UNSET);
+
+    LatencyEstimate(final double smoothing) {
+        this.smoothing = smoothing;
+    }
+
+    void record(final double millis) {
+        long current;
+        long updated;
+        do {
+            current = average.get();
+            final double previous = Double.longBitsToDouble(current);
+            updated = Double.doubleToRawLongBits(Double.isNaN(previous) ? millis : previous + smoothing * (millis - previous));
+        } while (!average.compareAndSet(current, updated));
+    }
+
+    double get() {
+        return Double.longBitsToDouble(average.get());
+    }
+}
@@ -0,0 +1,108 @@
+package pl.aitwar.auriga.transport;
+
+import pl.aitwar.auriga.transport.model.exceptions.NodeBusyException;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+class NodeChannel {
+    private final String nodeName;
+    private final int maxInFlight;
+    private final int maxQueued;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger drainRequests = new AtomicInteger();
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+
+    NodeChannel(final String nodeName, final int maxInFlight, final int maxQueued) {
+        this.nodeName = nodeName;
+        this.maxInFlight = maxInFlight;
+        this.maxQueued = maxQueued;
+    }
+
+    <T> CompletableFuture<T> submit(final Supplier<CompletableFuture<T>> call) {
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            return CompletableFuture.failedFuture(new NodeBusyException(nodeName));
+        }
+
+        final CompletableFuture<T> result = new CompletableFuture<>();
+
+        pending.add(() -> {
+            CompletableFuture<T> future;
+            try {
+                future = call.get();
+            } catch (Exception e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+
+            future.whenComplete((value, ex) -> {
+                release();
+
+                if (ex != null) {
+                    result.completeExceptionally(ex);
+                } else {
+                    result.complete(value);
+                }
+            });
+        });
+
+        drain();
+        return result;
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    int getQueued() {
+        return queued.get();
+    }
+
+    boolean isIdle() {
+        return inFlight.get() == 0 && queued.get() == 0;
+    }
+
+    private void release() {
+        inFlight.decrementAndGet();
+        drain();
+    }
+
+    // Only one thread drains at a time; calls completing while it runs them ask it to go on instead of recursing
+    private void drain() {
+        if (drainRequests.getAndIncrement() != 0) {
+            return;
+        }
+
+        int requests = 1;
+        do {
+            startPending();
+            requests = drainRequests.addAndGet(-requests);
+        } while (requests != 0);
+    }
+
+    private void startPending() {
+        while (true) {
+            final int current = inFlight.get();
+            if (current >= maxInFlight) {
+                return;
+            }
+
+            if (!inFlight.compareAndSet(current, current + 1)) {
+                continue;
+            }
+
+            final Runnable task = pending.poll();
+            if (task == null) {
+                inFlight.decrementAndGet();
+                return;
+            }
+
+            queued.decrementAndGet();
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package pl.aitwar.auriga.transport;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.jetbrains.annotations.NotNull;
+import pl.aitwar.auriga.metrics.Histogram;
+import pl.aitwar.auriga.metrics.Metrics;
+import pl.aitwar.auriga.nodes.model.Node;
+import pl.aitwar.auriga.transport.model.NodeOperation;
+import pl.aitwar.auriga.utils.BackgroundExecutors;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalDouble;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+@Singleton
+public class NodeTransport {
+    private static final String KEEP_ALIVE_PROPERTY = "jdk.httpclient.keepalive.timeout";
+
+    private final TransportConfiguration configuration;
+    private final HttpClient client;
+    private final Map<String, NodeChannel> channels = new ConcurrentHashMap<>();
+    private final Map<String, LatencyEstimate> latencies = new ConcurrentHashMap<>();
+    private final Map<NodeOperation, Histogram> durations = new EnumMap<>(NodeOperation.class);
+    private final Map<NodeOperation, LongAdder> failures = new EnumMap<>(NodeOperation.class);
+
+    @Inject
+    public NodeTransport(TransportConfiguration configuration, Metrics metrics, BackgroundExecutors backgroundExecutors) {
+        this.configuration = configuration;
+
+        for (NodeOperation operation : NodeOperation.values()) {
+            final String labels = Metrics.labels("operation", operation.label());
+            durations.put(operation, metrics.histogram("auriga_node_request_duration_seconds",
+                    "Time storage nodes took to answer", labels));
+            failures.put(operation, metrics.counter("auriga_node_request_failures_total",
+                    "Requests to storage nodes that failed or were answered with a server error", labels));
+        }
+
+        // Connection pool of the JDK client is tuned through system properties only
+        if (System.getProperty(KEEP_ALIVE_PROPERTY) == null) {
+            System.setProperty(KEEP_ALIVE_PROPERTY, String.valueOf(configuration.getKeepAlive().getSeconds()));
+        }
+
+        this.client = HttpClient.newBuilder()
+                .version(configuration.isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(configuration.getConnectTimeout())
+                .executor(backgroundExecutors.newPool(configuration.getWorkerThreads()))
+                .build();
+    }
+
+    @NotNull
+    public HttpRequest.Builder request(final String uri) {
+        return request(uri, configuration.getRequestTimeout());
+    }
+
+    @NotNull
+    public HttpRequest.Builder request(final String uri, final Duration timeout) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(uri))
+                .timeout(timeout);
+    }
+
+    @NotNull
+    public <T> CompletableFuture<HttpResponse<T>> send(final Node node, final NodeOperation operation,
+                                                       final HttpRequest request,
+                                                       final HttpResponse.BodyHandler<T> bodyHandler) {
+        Objects.requireNonNull(node);
+        Objects.requireNonNull(request);
+
+        final String nodeName = node.getName();
+        final Supplier<CompletableFuture<HttpResponse<T>>> call = () -> {
+            final long start = System.nanoTime();
+            return client.sendAsync(request, bodyHandler)
+                    .whenComplete((response, ex) -> {
+                        if (ex != null || response.statusCode() >= 500) {
+                            failures.get(operation).increment();
+                        }
+                        if (ex != null) {
+                            return;
+                        }
+                        final long elapsed = durations.get(operation).recordSince(start);
+                        if (operation.isReadLatency()) {
+                            latencyOf(nodeName).record(elapsed / 1_000_000.0);
+                        }
+                    });
+        };
+
+        return operation.isLimited() ? channelOf(nodeName).submit(call) : call.get();
+    }
+
+    @NotNull
+    public OptionalDouble getLatency(final String nodeName) {
+        final LatencyEstimate estimate = latencies.get(nodeName);
+        final double latency = estimate == null ? Double.NaN : estimate.get();
+        return Double.isNaN(latency) ? OptionalDouble.empty() : OptionalDouble.of(latency);
+    }
+
+    public void forget(final String nodeName) {
+        // A channel still holding calls is kept, so that a node registered again under the name shares its limit
+        channels.computeIfPresent(nodeName, (name, channel) -> channel.isIdle() ? null : channel);
+        latencies.remove(nodeName);
+    }
+
+    private LatencyEstimate latencyOf(final String nodeName) {
+        return latencies.computeIfAbsent(nodeName, name -> new LatencyEstimate(configuration.getLatencySmoothing()));
+    }
+
+    private NodeChannel channelOf(final String nodeName) {
+        return channels.computeIfAbsent(nodeName, name -> new NodeChannel(name,
+                configuration.getMaxInFlightPerNode(), configuration.getMaxQueuedPerNode()));
+    }
+}
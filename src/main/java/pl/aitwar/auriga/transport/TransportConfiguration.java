@@ -0,0 +1,27 @@
+package pl.aitwar.auriga.transport;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Duration;
+
+@Data
+@Builder
+public class TransportConfiguration {
+    @Builder.Default
+    private Duration connectTimeout = Duration.ofSeconds(5);
+    @Builder.Default
+    private Duration requestTimeout = Duration.ofSeconds(30);
+    @Builder.Default
+    private Duration keepAlive = Duration.ofMinutes(5);
+    @Builder.Default
+    private boolean http2 = false;
+    @Builder.Default
+    private int maxInFlightPerNode = 64;
+    @Builder.Default
+    private int maxQueuedPerNode = 4096;
+    @Builder.Default
+    private int workerThreads = Runtime.getRuntime().availableProcessors();
+    @Builder.Default
+    private double latencySmoothing = 0.2;
+}
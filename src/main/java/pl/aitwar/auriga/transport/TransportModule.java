@@ -0,0 +1,11 @@
+package pl.aitwar.auriga.transport;
+
+import com.google.inject.AbstractModule;
+
+public class TransportModule extends AbstractModule {
+    @Override
+    protected void configure() {
+        bind(TransportConfiguration.class).toInstance(TransportConfiguration.builder().build());
+        bind(NodeTransport.class);
+    }
+}
@@ -0,0 +1,27 @@
+package pl.aitwar.auriga.transport.model;
+
+public enum NodeOperation {
+    STATUS(false, true), READ(true, true), PUT(true, false), COPY(true, false), DELETE(true, false);
+
+    private final boolean limited;
+    private final boolean readLatency;
+
+    NodeOperation(final boolean limited, final boolean readLatency) {
+        this.limited = limited;
+        this.readLatency = readLatency;
+    }
+
+    public String label() {
+        return name().toLowerCase();
+    }
+
+    // Status requests skip the limit, so health probes never queue behind traffic
+    public boolean isLimited() {
+        return limited;
+    }
+
+    // Writes, batches and copies are slow on merely busy nodes
+    public boolean isReadLatency() {
+        return readLatency;
+    }
+}
@@ -0,0 +1,7 @@
+package pl.aitwar.auriga.transport.model.exceptions;
+
+public class NodeBusyException extends Exception {
+    public NodeBusyException(final String node) {
+        super("Node '" + node + "' has too many pending requests");
+    }
+}
@@ -0,0 +1,37 @@
+package pl.aitwar.auriga.utils;
+
+import com.google.inject.Singleton;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+@Singleton
+public class BackgroundExecutors {
+    private final List<ExecutorService> executors = new CopyOnWriteArrayList<>();
+
+    @NotNull
+    public ScheduledExecutorService newScheduler() {
+        return manage(Executors.newSingleThreadScheduledExecutor());
+    }
+
+    @NotNull
+    public ExecutorService newPool(final int threads) {
+        return manage(Executors.newFixedThreadPool(threads));
+    }
+
+    @NotNull
+    public ExecutorService newPool(final int threads, final ThreadFactory threadFactory) {
+        return manage(Executors.newFixedThreadPool(threads, threadFactory));
+    }
+
+    @NotNull
+    public <T extends ExecutorService> T manage(final T executor) {
+        executors.add(executor);
+        return executor;
+    }
+
+    public void shutdown() {
+        executors.forEach(ExecutorService::shutdownNow);
+    }
+}
@@ -0,0 +1,43 @@
+package pl.aitwar.auriga.utils;
+
+import com.google.inject.Singleton;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Singleton
+public class ByteBufferPool {
+    public static final int BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_RETAINED = 4096;
+
+    private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger retained = new AtomicInteger();
+
+    @NotNull
+    public ByteBuffer acquire() {
+        final ByteBuffer buffer = buffers.poll();
+
+        if (buffer == null) {
+            return ByteBuffer.allocate(BUFFER_SIZE);
+        }
+
+        retained.decrementAndGet();
+        return buffer.clear();
+    }
+
+    public void release(final ByteBuffer buffer) {
+        if (buffer.capacity() != BUFFER_SIZE || buffer.isReadOnly()) {
+            return;
+        }
+
+        if (retained.incrementAndGet() > MAX_RETAINED) {
+            retained.decrementAndGet();
+            return;
+        }
+
+        buffers.add(buffer);
+    }
+}
@@ -0,0 +1,108 @@
+package pl.aitwar.auriga.utils;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+// Every subscription retains the buffers when it starts and releases them when it ends
+public class ByteBufferPublisher implements Flow.Publisher<ByteBuffer> {
+    private final List<ByteBuffer> buffers;
+    private final BooleanSupplier retain;
+    private final Runnable release;
+
+    public ByteBufferPublisher(final List<ByteBuffer> buffers) {
+        this(buffers, () -> true, () -> {
+        });
+    }
+
+    public ByteBufferPublisher(final List<ByteBuffer> buffers, final BooleanSupplier retain, final Runnable release) {
+        this.buffers = buffers;
+        this.retain = retain;
+        this.release = release;
+    }
+
+    @Override
+    public void subscribe(final Flow.Subscriber<? super ByteBuffer> subscriber) {
+        if (!retain.getAsBoolean()) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(final long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("Buffers were already released"));
+            return;
+        }
+
+        subscriber.onSubscribe(new BufferSubscription(subscriber, buffers, release));
+    }
+
+    private static final class BufferSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+        private final List<ByteBuffer> buffers;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger work = new AtomicInteger();
+        private final AtomicBoolean released = new AtomicBoolean();
+        private final Runnable release;
+        private volatile boolean done;
+        private int next;
+
+        private BufferSubscription(final Flow.Subscriber<? super ByteBuffer> subscriber, final List<ByteBuffer> buffers,
+                                   final Runnable release) {
+            this.subscriber = subscriber;
+            this.buffers = buffers;
+            this.release = release;
+        }
+
+        @Override
+        public void request(final long n) {
+            if (n <= 0) {
+                done = true;
+                finish();
+                subscriber.onError(new IllegalArgumentException("Requested non-positive number of buffers"));
+                return;
+            }
+
+            demand.accumulateAndGet(n, (current, requested) -> current + requested < 0 ? Long.MAX_VALUE : current + requested);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            done = true;
+            finish();
+        }
+
+        private void finish() {
+            if (released.compareAndSet(false, true)) {
+                release.run();
+            }
+        }
+
+        private void drain() {
+            if (work.getAndIncrement() != 0) {
+                return;
+            }
+
+            do {
+                while (!done && demand.get() > 0 && next < buffers.size()) {
+                    demand.decrementAndGet();
+                    subscriber.onNext(buffers.get(next++).asReadOnlyBuffer());
+                }
+
+                if (!done && next == buffers.size()) {
+                    done = true;
+                    subscriber.onComplete();
+                    finish();
+                }
+            } while (work.decrementAndGet() != 0);
+        }
+    }
+}
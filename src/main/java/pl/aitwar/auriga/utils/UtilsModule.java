@@ -4,11 +4,15 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.inject.AbstractModule;
 import com.google.inject.Singleton;
 import pl.aitwar.auriga.utils.eventbus.EventBus;
+import pl.aitwar.auriga.utils.eventbus.EventBusConfiguration;
 
 public class UtilsModule extends AbstractModule {
     @Override
     protected void configure() {
         bind(ObjectMapper.class).toProvider(ObjectMapperProvider.class).in(Singleton.class);
+        bind(EventBusConfiguration.class).toInstance(EventBusConfiguration.builder().build());
         bind(EventBus.class);
+        bind(ByteBufferPool.class);
+        bind(BackgroundExecutors.class);
     }
 }
@@ -0,0 +1,6 @@
+package pl.aitwar.auriga.utils.eventbus;
+
+public enum Backpressure {
+    BLOCK,
+    DROP
+}
@@ -1,5 +1,24 @@
 package pl.aitwar.auriga.utils.eventbus;
 
-public enum Event {
-    NODE_ADD, NODE_REM
+public final class Event<T> {
+    public static final Event<String> NODE_ADD = new Event<>("NODE_ADD", true);
+    public static final Event<String> NODE_REM = new Event<>("NODE_REM", false);
+    public static final Event<String> NODE_UPD = new Event<>("NODE_UPD", true);
+
+    private final String name;
+    private final boolean droppable;
+
+    private Event(final String name, final boolean droppable) {
+        this.name = name;
+        this.droppable = droppable;
+    }
+
+    public boolean isDroppable() {
+        return droppable;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
 }
@@ -1,49 +1,162 @@
 package pl.aitwar.auriga.utils.eventbus;
 
+import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.aitwar.auriga.utils.BackgroundExecutors;
 
-import java.util.EnumMap;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
 
 @Singleton
 public class EventBus {
-    private EnumMap<Event, Set<Consumer<Object>>> handlers;
+    private static final Logger logger = LoggerFactory.getLogger(EventBus.class);
+    private static final int DELIVERY_BATCH = 256;
 
-    public void listen(final Event ev, final Consumer<Object> eh) {
-        if (handlers == null) {
-            handlers = new EnumMap<>(Event.class);
-        }
+    private final Map<Event<?>, List<Subscriber<?>>> subscribers = new ConcurrentHashMap<>();
+    private final EventBusConfiguration configuration;
+    private final ExecutorService deliveryExecutor;
+    private final LongAdder dropped = new LongAdder();
 
-        if (!handlers.containsKey(ev)) {
-            handlers.put(ev, new HashSet<>());
-        }
+    public EventBus() {
+        this(EventBusConfiguration.builder().build());
+    }
+
+    public EventBus(EventBusConfiguration configuration) {
+        this(configuration, new BackgroundExecutors());
+    }
 
-        handlers.get(ev).add(eh);
+    @Inject
+    public EventBus(EventBusConfiguration configuration, BackgroundExecutors backgroundExecutors) {
+        this.configuration = configuration;
+        this.deliveryExecutor = backgroundExecutors.newPool(configuration.getDeliveryThreads(), runnable -> {
+            final Thread thread = new Thread(runnable, "event-bus-delivery");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
-    public void publish(final Event ev, final Object payload) {
-        if (handlers == null || !handlers.containsKey(ev)) {
+    public <T> void listen(final Event<T> event, final Consumer<? super T> listener) {
+        subscribersOf(event).add(new Subscriber<>(listener));
+    }
+
+    // A blocked publisher must not be one of this listener's deliveries
+    public <T> void listenAsync(final Event<T> event, final Consumer<? super T> listener) {
+        listenAsync(event, Backpressure.BLOCK, listener);
+    }
+
+    // Events that are not droppable only take blocking listeners
+    public <T> void listenAsync(final Event<T> event, final Backpressure backpressure, final Consumer<? super T> listener) {
+        if (backpressure == Backpressure.DROP && !event.isDroppable()) {
+            throw new IllegalArgumentException("Event " + event + " must not be dropped");
+        }
+        subscribersOf(event).add(new AsyncSubscriber<>(listener, backpressure));
+    }
+
+    public <T> void publish(final Event<T> event, final T payload) {
+        final List<Subscriber<?>> listeners = subscribers.get(event);
+        if (listeners == null) {
             return;
         }
 
-        handlers.get(ev).forEach(handler -> handler.accept(payload));
+        for (Subscriber<?> subscriber : listeners) {
+            @SuppressWarnings("unchecked") final Subscriber<T> typed = (Subscriber<T>) subscriber;
+            typed.publish(payload);
+        }
     }
 
     public void clear() {
-        if (handlers == null) {
-            return;
+        subscribers.clear();
+    }
+
+    public <T> void forget(final Event<T> event, final Consumer<? super T> listener) {
+        final List<Subscriber<?>> listeners = subscribers.get(event);
+        if (listeners == null) {
+            throw new IllegalArgumentException("Given event is not initialized");
         }
 
-        handlers.clear();
+        listeners.removeIf(subscriber -> subscriber.listener == listener);
     }
 
-    public void forget(final Event ev, final Consumer<Object> eh) {
-        if (handlers == null || !handlers.containsKey(ev)) {
-            throw new IllegalArgumentException("Given event is not initialized");
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    private List<Subscriber<?>> subscribersOf(final Event<?> event) {
+        return subscribers.computeIfAbsent(event, key -> new CopyOnWriteArrayList<>());
+    }
+
+    private static class Subscriber<T> {
+        protected final Consumer<? super T> listener;
+
+        private Subscriber(final Consumer<? super T> listener) {
+            this.listener = listener;
+        }
+
+        void publish(final T payload) {
+            deliver(payload);
+        }
+
+        protected void deliver(final T payload) {
+            try {
+                listener.accept(payload);
+            } catch (RuntimeException e) {
+                logger.error("Event listener failed", e);
+            }
+        }
+    }
+
+    private final class AsyncSubscriber<T> extends Subscriber<T> {
+        private final RingBuffer<T> queue = new RingBuffer<>(configuration.getQueueCapacity());
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final Backpressure backpressure;
+
+        private AsyncSubscriber(final Consumer<? super T> listener, final Backpressure backpressure) {
+            super(listener);
+            this.backpressure = backpressure;
+        }
+
+        @Override
+        void publish(final T payload) {
+            while (!queue.offer(payload)) {
+                if (backpressure == Backpressure.DROP) {
+                    dropped.increment();
+                    logger.debug("Event listener queue is full, dropping event");
+                    return;
+                }
+                schedule();
+                LockSupport.parkNanos(50_000);
+            }
+            schedule();
         }
 
-        handlers.get(ev).remove(eh);
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                deliveryExecutor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            for (int i = 0; i < DELIVERY_BATCH; i++) {
+                final T payload = queue.poll();
+                if (payload == null) {
+                    break;
+                }
+                deliver(payload);
+            }
+
+            scheduled.set(false);
+            if (!queue.isEmpty()) {
+                schedule();
+            }
+        }
     }
 }
@@ -0,0 +1,13 @@
+package pl.aitwar.auriga.utils.eventbus;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class EventBusConfiguration {
+    @Builder.Default
+    private int queueCapacity = 1024;
+    @Builder.Default
+    private int deliveryThreads = 2;
+}
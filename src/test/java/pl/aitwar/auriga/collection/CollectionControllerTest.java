@@ -0,0 +1,53 @@
+package pl.aitwar.auriga.collection;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import org.junit.Test;
+import pl.aitwar.auriga.collection.model.exceptions.CollectionBlockedException;
+import pl.aitwar.auriga.collection.model.exceptions.DocumentAllocationException;
+import pl.aitwar.auriga.collection.model.exceptions.UnknownCollectionException;
+import pl.aitwar.auriga.nodes.model.exceptions.NoFreeNodeException;
+import pl.aitwar.auriga.transport.model.exceptions.NodeBusyException;
+
+import java.io.IOException;
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+
+public class CollectionControllerTest {
+    @Test
+    public void shouldMapClientErrors() {
+        assertEquals(400, CollectionController.statusOf(new JsonParseException(null, "malformed")));
+        assertEquals(404, CollectionController.statusOf(new UnknownCollectionException("TEST")));
+    }
+
+    @Test
+    public void shouldMapUnavailableNodes() {
+        assertEquals(502, CollectionController.statusOf(new DocumentAllocationException("TEST", "node", 500)));
+        assertEquals(503, CollectionController.statusOf(new NodeBusyException("node")));
+        assertEquals(503, CollectionController.statusOf(new NoFreeNodeException()));
+        assertEquals(503, CollectionController.statusOf(new CollectionBlockedException("TEST")));
+        assertEquals(503, CollectionController.statusOf(new RejectedExecutionException()));
+    }
+
+    @Test
+    public void shouldMapTimeouts() {
+        assertEquals(504, CollectionController.statusOf(new TimeoutException()));
+        assertEquals(504, CollectionController.statusOf(new HttpTimeoutException("request timed out")));
+    }
+
+    @Test
+    public void shouldUnwrapCompletionExceptions() {
+        assertEquals(504, CollectionController.statusOf(
+                new CompletionException(new CompletionException(new HttpTimeoutException("request timed out")))));
+        assertEquals(503, CollectionController.statusOf(new CompletionException(new NodeBusyException("node"))));
+    }
+
+    @Test
+    public void shouldMapOtherFailuresToServerError() {
+        assertEquals(500, CollectionController.statusOf(new CompletionException(new IOException("connection reset"))));
+        assertEquals(500, CollectionController.statusOf(new IllegalStateException()));
+    }
+}
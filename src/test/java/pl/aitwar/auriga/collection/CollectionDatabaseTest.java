@@ -0,0 +1,121 @@
+package pl.aitwar.auriga.collection;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pl.aitwar.auriga.collection.journal.FileCollectionJournal;
+import pl.aitwar.auriga.utils.BackgroundExecutors;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class CollectionDatabaseTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BackgroundExecutors backgroundExecutors = new BackgroundExecutors();
+    private CollectionConfiguration configuration;
+
+    @Before
+    public void setUp() {
+        configuration = CollectionConfiguration.builder()
+                .snapshotFile(folder.getRoot().toPath().resolve("collections.db").toString())
+                .legacySnapshotFile(folder.getRoot().toPath().resolve("collections.json").toString())
+                .journalFile(folder.getRoot().toPath().resolve("collections.journal").toString())
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        backgroundExecutors.shutdown();
+    }
+
+    @Test
+    public void shouldRestoreSnapshotAndJournal() throws Exception {
+        final FileCollectionJournal journal = new FileCollectionJournal(objectMapper, configuration);
+        final CollectionMetadataStore store = new CollectionMetadataStore(journal);
+        final CollectionDatabase database = new CollectionDatabase(store, journal, objectMapper, configuration, backgroundExecutors);
+        database.load();
+
+        store.create("users", 2);
+        store.addReplica("users", "NODE1");
+        database.compact();
+        store.create("orders", 1);
+        store.addReplica("users", "NODE2");
+        journal.rotate().join();
+
+        final CollectionMetadataStore restored = restore();
+        assertEquals(store.get("users"), restored.get("users"));
+        assertEquals(store.get("orders"), restored.get("orders"));
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void shouldRefuseToStartWithUnreadableDatabase() throws Exception {
+        Files.write(folder.getRoot().toPath().resolve("collections.json"), "{\"users\":".getBytes(StandardCharsets.UTF_8));
+
+        restore();
+    }
+
+    @Test
+    public void shouldRefuseChangesAndKeepAcceptedEntriesWhileJournalFails() throws Exception {
+        final AtomicBoolean failing = new AtomicBoolean();
+        final CountDownLatch failures = new CountDownLatch(2);
+        final ObjectMapper failingMapper = new ObjectMapper() {
+            @Override
+            public byte[] writeValueAsBytes(Object value) throws JsonProcessingException {
+                if (failing.get()) {
+                    failures.countDown();
+                    throw JsonMappingException.from(this.getDeserializationContext(), "disk failure");
+                }
+                return super.writeValueAsBytes(value);
+            }
+        };
+        configuration.setJournalRetryDelay(Duration.ofMillis(10));
+        final FileCollectionJournal journal = new FileCollectionJournal(failingMapper, configuration);
+        final CollectionMetadataStore store = new CollectionMetadataStore(journal);
+        new CollectionDatabase(store, journal, failingMapper, configuration, backgroundExecutors).load();
+
+        failing.set(true);
+        store.create("users", 2);
+        assertTrue(failures.await(5, TimeUnit.SECONDS));
+
+        try {
+            store.create("orders", 1);
+            fail();
+        } catch (UncheckedIOException e) {
+            assertFalse(store.contains("orders"));
+            assertFalse(store.getNames().contains("orders"));
+        }
+
+        final CompletableFuture<Boolean> rotation = journal.rotate();
+        failing.set(false);
+        assertTrue(rotation.get(5, TimeUnit.SECONDS));
+        assertEquals(1, Files.readAllLines(Paths.get(configuration.getJournalFile() + ".old")).size());
+
+        final CollectionMetadataStore restored = restore();
+        assertEquals(store.get("users"), restored.get("users"));
+        assertFalse(restored.contains("orders"));
+    }
+
+    private CollectionMetadataStore restore() {
+        final FileCollectionJournal journal = new FileCollectionJournal(objectMapper, configuration);
+        final CollectionMetadataStore store = new CollectionMetadataStore(journal);
+        new CollectionDatabase(store, journal, objectMapper, configuration, backgroundExecutors).load();
+        return store;
+    }
+}
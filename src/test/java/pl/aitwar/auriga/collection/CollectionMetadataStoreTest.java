@@ -0,0 +1,171 @@
+package pl.aitwar.auriga.collection;
+
+import org.junit.Before;
+import org.junit.Test;
+import pl.aitwar.auriga.collection.journal.JournalEntry;
+import pl.aitwar.auriga.collection.journal.JournalOperation;
+import pl.aitwar.auriga.collection.model.CollectionDescriptor;
+import pl.aitwar.auriga.collection.model.exceptions.CollectionAlreadyExistsException;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class CollectionMetadataStoreTest {
+    private CollectionMetadataStore store;
+
+    @Before
+    public void setUp() throws CollectionAlreadyExistsException {
+        store = new CollectionMetadataStore(entry -> {
+        });
+        store.create("TEST", 3);
+    }
+
+    @Test(expected = CollectionAlreadyExistsException.class)
+    public void shouldRejectDuplicatedCollection() throws CollectionAlreadyExistsException {
+        store.create("TEST", 1);
+    }
+
+    @Test
+    public void shouldTrackReplicationLevel() {
+        store.addReplica("TEST", "NODE1");
+        store.addReplica("TEST", "NODE1");
+        store.addReplica("TEST", "NODE2");
+        store.removeReplica("TEST", "NODE1");
+        store.removeReplica("TEST", "NODE3");
+
+        CollectionDescriptor descriptor = store.get("TEST").orElseThrow();
+        assertEquals(1, descriptor.getCurrentReplicationLevel());
+        assertTrue(descriptor.containsNode("NODE2"));
+        assertFalse(descriptor.containsNode("NODE1"));
+    }
+
+    @Test
+    public void shouldNotLoseConcurrentUpdates() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        IntStream.range(0, 1000).forEach(i -> executor.execute(() -> {
+            store.addReplica("TEST", "NODE" + i);
+            store.setBlocked("TEST", i % 2 == 0);
+        }));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        CollectionDescriptor descriptor = store.get("TEST").orElseThrow();
+        assertEquals(1000, descriptor.getCurrentReplicationLevel());
+        assertEquals(1000, descriptor.getContainingNodesNames().size());
+    }
+
+    @Test
+    public void shouldIgnoreUpdatesOfUnknownCollection() {
+        assertFalse(store.addReplica("UNKNOWN", "NODE1").isPresent());
+        assertFalse(store.contains("UNKNOWN"));
+    }
+
+    @Test
+    public void shouldIndexReplicasByNode() {
+        store.addReplica("TEST", "NODE1");
+        store.addReplica("TEST", "NODE2");
+        store.getOrCreate("OTHER", 1);
+        store.addReplica("OTHER", "NODE1");
+
+        assertEquals(Set.of("TEST", "OTHER"), store.getCollectionsOn("NODE1"));
+        assertEquals(Set.of("TEST"), store.getUnderReplicated());
+
+        store.removeReplica("TEST", "NODE1");
+        store.remove("OTHER");
+        assertTrue(store.getCollectionsOn("NODE1").isEmpty());
+        assertEquals(Set.of("TEST"), store.getCollectionsOn("NODE2"));
+    }
+
+    @Test
+    public void shouldTrackUnderReplicatedCollections() {
+        assertEquals(Set.of("TEST"), store.getUnderReplicated());
+
+        IntStream.range(0, 3).forEach(i -> store.addReplica("TEST", "NODE" + i));
+        assertTrue(store.getUnderReplicated().isEmpty());
+
+        store.removeReplica("TEST", "NODE0");
+        assertEquals(Set.of("TEST"), store.getUnderReplicated());
+    }
+
+    @Test
+    public void shouldIndexNamesInOrder() {
+        store.getOrCreate("tenant2/a", 1);
+        store.getOrCreate("tenant1/b", 1);
+        store.getOrCreate("tenant1/a", 1);
+        store.getOrCreate("tenant10/a", 1);
+        store.getOrCreate("tenant1\uffff", 1);
+
+        assertEquals(List.of("tenant1/a", "tenant1/b"), List.copyOf(store.getNames("tenant1/")));
+        assertEquals(List.of("tenant1/a", "tenant1/b", "tenant10/a", "tenant1\uffff"), List.copyOf(store.getNames("tenant1")));
+        assertEquals("tenant2/a", store.getNames().last());
+
+        store.remove("tenant1/a");
+        assertEquals(List.of("tenant1/b"), List.copyOf(store.getNames("tenant1/")));
+    }
+
+    @Test
+    public void shouldNotRetargetBelowCurrentReplicas() {
+        store.addReplica("TEST", "NODE1");
+        store.addReplica("TEST", "NODE2");
+
+        assertEquals(3, store.setTargetReplication("TEST", 1).orElseThrow().getTargetReplicationLevel());
+        assertEquals(2, store.setTargetReplication("TEST", 2).orElseThrow().getTargetReplicationLevel());
+        assertTrue(store.getUnderReplicated().isEmpty());
+
+        store.setTargetReplication("TEST", 4);
+        assertEquals(Set.of("TEST"), store.getUnderReplicated());
+    }
+
+    @Test
+    public void shouldWaitForMutationsInFlight() throws Exception {
+        final CountDownLatch appending = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CollectionMetadataStore gated = new CollectionMetadataStore(entry -> {
+            appending.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        final CompletableFuture<CollectionDescriptor> created = CompletableFuture.supplyAsync(() -> gated.getOrCreate("USERS", 1));
+        assertTrue(appending.await(5, TimeUnit.SECONDS));
+        final CompletableFuture<Boolean> seen = CompletableFuture.supplyAsync(() -> gated.withoutMutations(() -> gated.contains("USERS")));
+
+        Thread.sleep(100);
+        assertFalse(seen.isDone());
+        release.countDown();
+        assertNotNull(created.get(5, TimeUnit.SECONDS));
+        assertTrue(seen.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shouldKeepReplicasInOwnNodeIds() {
+        final CollectionDescriptor restored = CollectionDescriptor.builder()
+                .name("TEST")
+                .targetReplicationLevel(3)
+                .currentReplicationLevel(1)
+                .containingNodesName("NODE9")
+                .build();
+        store.restore(new JournalEntry(JournalOperation.REPLICA_ADD, "TEST", restored));
+
+        final CollectionMetadataStore other = new CollectionMetadataStore(entry -> {
+        });
+        other.getOrCreate("OTHER", 1);
+        other.addReplica("OTHER", "NODE10");
+
+        assertEquals(restored, store.get("TEST").orElseThrow());
+        assertTrue(store.get("TEST").orElseThrow().withNode("NODE1").containsNode("NODE9"));
+        assertTrue(store.getNodeIds().find("NODE9") >= 0);
+        assertEquals(-1, store.getNodeIds().find("NODE10"));
+    }
+}
@@ -0,0 +1,84 @@
+package pl.aitwar.auriga.collection.copy;
+
+import org.junit.Before;
+import org.junit.Test;
+import pl.aitwar.auriga.collection.CollectionConfiguration;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class PendingReplicasTest {
+    private PendingReplicas pendingReplicas;
+
+    @Before
+    public void setUp() {
+        pendingReplicas = new PendingReplicas(null, CollectionConfiguration.builder().build());
+    }
+
+    @Test
+    public void shouldRunFenceOnceAdmittedWritersChoseAndSourceSettled() throws Exception {
+        assertTrue(pendingReplicas.admit("users").isDone());
+
+        final AtomicInteger runs = new AtomicInteger();
+        final CompletableFuture<Integer> fenced = pendingReplicas.fenced("users", List.of("a"),
+                () -> CompletableFuture.completedFuture(runs.incrementAndGet()));
+        assertEquals(0, runs.get());
+
+        pendingReplicas.chosen("users", List.of("a", "b"));
+        assertEquals(0, runs.get());
+
+        pendingReplicas.settled("users", "b");
+        assertEquals(0, runs.get());
+
+        pendingReplicas.settled("users", "a");
+        assertEquals(1, (int) fenced.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shouldHoldWritersBackUntilFenceLifts() throws Exception {
+        final CompletableFuture<Void> action = new CompletableFuture<>();
+        final CompletableFuture<Void> fenced = pendingReplicas.fenced("users", List.of(), () -> action);
+
+        final CompletableFuture<Void> admitted = pendingReplicas.admit("users");
+        assertFalse(admitted.isDone());
+        assertTrue(pendingReplicas.admit("orders").isDone());
+
+        action.complete(null);
+        fenced.get(1, TimeUnit.SECONDS);
+        admitted.get(1, TimeUnit.SECONDS);
+
+        // The admitted writer keeps the next fence waiting until it chose
+        final CompletableFuture<Void> next = pendingReplicas.fenced("users", List.of(), () -> CompletableFuture.completedFuture(null));
+        assertFalse(next.isDone());
+        pendingReplicas.chosen("users", List.of());
+        next.get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void shouldRunFencesOneAfterAnother() throws Exception {
+        final CompletableFuture<Void> first = new CompletableFuture<>();
+        final AtomicInteger secondRuns = new AtomicInteger();
+
+        pendingReplicas.fenced("users", List.of(), () -> first);
+        final CompletableFuture<Integer> second = pendingReplicas.fenced("users", List.of(),
+                () -> CompletableFuture.completedFuture(secondRuns.incrementAndGet()));
+        assertEquals(0, secondRuns.get());
+
+        first.complete(null);
+        assertEquals(1, (int) second.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shouldLiftFenceWhenActionFails() throws Exception {
+        final CompletableFuture<Void> fenced = pendingReplicas.fenced("users", List.of(), () -> {
+            throw new IllegalStateException("failed");
+        });
+
+        assertTrue(fenced.isCompletedExceptionally());
+        assertTrue(pendingReplicas.admit("users").isDone());
+    }
+}
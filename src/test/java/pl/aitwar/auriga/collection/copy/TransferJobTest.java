@@ -0,0 +1,95 @@
+package pl.aitwar.auriga.collection.copy;
+
+import org.junit.Test;
+import pl.aitwar.auriga.collection.model.exceptions.CollectionCopyException;
+import pl.aitwar.auriga.nodes.model.Node;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TransferJobTest {
+    private static final Node TARGET = new Node("target", "10.0.0.9:7000");
+    private static final List<Node> SOURCES = List.of(new Node("a", "10.0.0.1:7000"), new Node("b", "10.0.0.2:7000"));
+
+    private static List<CopyRange> ranges(int count) {
+        final List<CopyRange> ranges = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ranges.add(new CopyRange(i, count, count * 10L));
+        }
+        return ranges;
+    }
+
+    @Test
+    public void shouldPullRangesFromEverySource() throws Exception {
+        final Map<String, List<CopyRange>> copied = new HashMap<>();
+        final Deque<CompletableFuture<Void>> calls = new ArrayDeque<>();
+
+        final CompletableFuture<Void> result = new TransferJob("users", TARGET, ranges(6), SOURCES, 3, (name, range, source, target) -> {
+            copied.computeIfAbsent(source.getName(), key -> new ArrayList<>()).add(range);
+            final CompletableFuture<Void> call = new CompletableFuture<>();
+            calls.add(call);
+            return call;
+        }).start();
+
+        assertEquals(3, calls.size());
+        assertEquals(2, copied.get("a").size());
+        while (!calls.isEmpty()) {
+            assertFalse(result.isDone());
+            calls.poll().complete(null);
+        }
+
+        result.get(1, TimeUnit.SECONDS);
+
+        assertEquals(Set.of("a", "b"), copied.keySet());
+        assertEquals(new HashSet<>(ranges(6)), copied.values().stream()
+                .flatMap(List::stream)
+                .collect(HashSet::new, HashSet::add, HashSet::addAll));
+    }
+
+    @Test
+    public void shouldCompleteRightAwayWithoutRanges() throws Exception {
+        new TransferJob("users", TARGET, List.of(), SOURCES, 2, (name, range, source, target) -> {
+            throw new AssertionError();
+        }).start().get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void shouldHandFailedRangesToOtherSource() throws Exception {
+        final List<CopyRange> copiedFromB = new ArrayList<>();
+        final List<CompletableFuture<Void>> pendingOnA = new ArrayList<>();
+
+        final CompletableFuture<Void> result = new TransferJob("users", TARGET, ranges(4), SOURCES, 2, (name, range, source, target) -> {
+            if (source.getName().equals("a")) {
+                final CompletableFuture<Void> call = new CompletableFuture<>();
+                pendingOnA.add(call);
+                return call;
+            }
+            copiedFromB.add(range);
+            return CompletableFuture.completedFuture(null);
+        }).start();
+
+        assertFalse(result.isDone());
+        assertEquals(1, pendingOnA.size());
+        pendingOnA.get(0).completeExceptionally(new RuntimeException("node died"));
+
+        result.get(1, TimeUnit.SECONDS);
+        assertEquals(new HashSet<>(ranges(4)), new HashSet<>(copiedFromB));
+    }
+
+    @Test
+    public void shouldFailWhenEverySourceFails() throws Exception {
+        final CompletableFuture<Void> result = new TransferJob("users", TARGET, ranges(3), SOURCES, 2,
+                (name, range, source, target) -> CompletableFuture.failedFuture(new RuntimeException("down"))).start();
+
+        try {
+            result.get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof CollectionCopyException);
+        }
+    }
+}
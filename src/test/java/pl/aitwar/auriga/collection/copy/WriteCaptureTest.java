@@ -0,0 +1,39 @@
+package pl.aitwar.auriga.collection.copy;
+
+import org.junit.Test;
+import pl.aitwar.auriga.collection.model.DocumentPayload;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class WriteCaptureTest {
+    @Test
+    public void shouldHandOverCapturedWritesUntilClosed() {
+        final WriteCapture capture = new WriteCapture("users", "node-1", 10);
+
+        assertTrue(capture.record(DocumentPayload.of("{\"a\":1}")));
+        assertTrue(capture.record(DocumentPayload.of("{\"a\":2}")));
+        assertEquals(2, capture.drain().size());
+        assertTrue(capture.drain().isEmpty());
+
+        assertTrue(capture.record(DocumentPayload.of("{\"a\":3}")));
+        final List<DocumentPayload> rest = capture.close();
+        assertEquals(1, rest.size());
+        assertEquals(7, rest.get(0).getLength());
+
+        assertFalse(capture.record(DocumentPayload.of("{\"a\":4}")));
+    }
+
+    @Test
+    public void shouldGiveUpWhenTooManyWritesArrive() {
+        final WriteCapture capture = new WriteCapture("users", "node-1", 2);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(capture.record(DocumentPayload.of("{}")));
+        }
+
+        assertTrue(capture.isOverflowed());
+        assertTrue(capture.close().isEmpty());
+    }
+}
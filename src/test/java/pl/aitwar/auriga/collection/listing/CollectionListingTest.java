@@ -0,0 +1,80 @@
+package pl.aitwar.auriga.collection.listing;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import pl.aitwar.auriga.collection.CollectionMetadataStore;
+import pl.aitwar.auriga.collection.model.CollectionDescriptor;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class CollectionListingTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private CollectionMetadataStore store;
+    private CollectionListing listing;
+
+    @Before
+    public void setUp() {
+        store = new CollectionMetadataStore(entry -> {
+        });
+        for (String name : new String[]{"b/2", "a/1", "b/1", "c/1", "b/3", "a/2"}) {
+            store.getOrCreate(name, 1);
+        }
+        listing = new CollectionListing(store, objectMapper);
+    }
+
+    @Test
+    public void shouldReuseListingUntilStoreChanges() {
+        CollectionListing.Listing first = listing.current();
+        assertSame(first, listing.current());
+        assertSame(first.serialized(), first.serialized());
+
+        store.addReplica("a/1", "NODE1");
+        CollectionListing.Listing second = listing.current();
+        assertNotSame(first, second);
+        assertNotEquals(first.getETag(), second.getETag());
+
+        store.getOrCreate("a/1", 1);
+        assertSame(second, listing.current());
+    }
+
+    @Test
+    public void shouldSerializeAllCollectionsSortedByName() throws Exception {
+        JsonNode body = objectMapper.readTree(listing.current().serialized());
+
+        assertEquals(6, body.size());
+        assertEquals("a/1", body.get(0).get("name").asText());
+        assertEquals("c/1", body.get(5).get("name").asText());
+    }
+
+    @Test
+    public void shouldPageThroughPrefix() {
+        CollectionListing.Listing current = listing.current();
+
+        ListingPage first = current.page("b/", null, 2);
+        assertEquals(List.of("b/1", "b/2"), names(first));
+        assertEquals("b/2", first.getNextCursor());
+
+        ListingPage last = current.page("b/", first.getNextCursor(), 2);
+        assertEquals(List.of("b/3"), names(last));
+        assertNull(last.getNextCursor());
+
+        assertTrue(current.page("d/", null, 2).getDescriptors().isEmpty());
+    }
+
+    @Test
+    public void shouldContinueAfterCursorWithoutPrefix() {
+        ListingPage page = listing.current().page(null, "b/3", 10);
+
+        assertEquals(List.of("c/1"), names(page));
+        assertNull(page.getNextCursor());
+    }
+
+    private static List<String> names(final ListingPage page) {
+        return page.getDescriptors().stream().map(CollectionDescriptor::getName).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,52 @@
+package pl.aitwar.auriga.collection.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class CollectionDescriptorTest {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final CollectionDescriptor empty = CollectionDescriptor.builder()
+            .name("TEST")
+            .targetReplicationLevel(2)
+            .build();
+
+    @Test
+    public void shouldKeepJsonShape() throws IOException {
+        final CollectionDescriptor descriptor = empty.withNode("NODE1").withNode("NODE2");
+        final String json = objectMapper.writeValueAsString(descriptor);
+
+        final Set<String> fields = new HashSet<>();
+        objectMapper.readTree(json).fieldNames().forEachRemaining(fields::add);
+        assertEquals(Set.of("targetReplicationLevel", "currentReplicationLevel", "blocked", "name", "containingNodesNames"), fields);
+
+        final CollectionDescriptor read = objectMapper.readValue(json, CollectionDescriptor.class);
+        assertEquals(descriptor, read);
+        assertEquals(Set.of("NODE1", "NODE2"), read.getContainingNodesNames());
+    }
+
+    @Test
+    public void shouldEqualAfterRemovingEveryReplica() {
+        final CollectionDescriptor descriptor = empty.withNode("NODE1").withoutNode("NODE1");
+
+        assertEquals(empty, descriptor);
+        assertEquals(empty.hashCode(), descriptor.hashCode());
+        assertFalse(descriptor.isAvailable());
+    }
+
+    @Test
+    public void shouldNotDuplicateReplicas() {
+        final CollectionDescriptor descriptor = empty.withNode("NODE1").withNode("NODE1");
+
+        assertEquals(1, descriptor.getCurrentReplicationLevel());
+        assertEquals(Set.of("NODE1"), descriptor.getContainingNodesNames());
+        assertTrue(descriptor.containsNode("NODE1"));
+        assertFalse(descriptor.containsNode("NEVER-SEEN"));
+    }
+}
@@ -0,0 +1,124 @@
+package pl.aitwar.auriga.collection.model;
+
+import org.junit.Test;
+import pl.aitwar.auriga.utils.ByteBufferPool;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+
+import static org.junit.Assert.*;
+
+public class DocumentPayloadTest {
+    private final RecordingPool pool = new RecordingPool();
+    private final DocumentPayload document = new DocumentPayload(List.of(pool.acquire(), pool.acquire()), pool);
+
+    @Test
+    public void shouldReturnBuffersAfterLastRelease() {
+        document.retain();
+
+        document.release();
+        assertEquals(0, pool.released.size());
+
+        document.release();
+        assertEquals(2, pool.released.size());
+    }
+
+    @Test
+    public void shouldRejectDoubleRelease() {
+        document.release();
+
+        try {
+            document.release();
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        assertEquals(2, pool.released.size());
+    }
+
+    @Test
+    public void shouldHoldBuffersUntilBodyIsPublished() {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        document.publisher().subscribe(subscriber);
+
+        document.release();
+        assertEquals(0, pool.released.size());
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertTrue(subscriber.completed);
+        assertEquals(2, pool.released.size());
+    }
+
+    @Test
+    public void shouldReturnBuffersOnceCancelledBodyIsReleased() {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        document.publisher().subscribe(subscriber);
+
+        subscriber.subscription.cancel();
+        subscriber.subscription.cancel();
+        assertEquals(0, pool.released.size());
+
+        document.release();
+        assertEquals(2, pool.released.size());
+    }
+
+    @Test
+    public void shouldKeepBuffersOfFailedRequestOutOfPool() {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        DocumentPayload.arrayPublisher(List.of(document)).subscribe(subscriber);
+
+        document.abandon();
+        subscriber.subscription.cancel();
+        document.release();
+
+        assertEquals(0, pool.released.size());
+    }
+
+    @Test
+    public void shouldNotPublishReleasedDocument() {
+        document.release();
+
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        document.publisher().subscribe(subscriber);
+
+        assertTrue(subscriber.error instanceof IllegalStateException);
+        assertEquals(2, pool.released.size());
+    }
+
+    private static class RecordingPool extends ByteBufferPool {
+        private final List<ByteBuffer> released = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void release(final ByteBuffer buffer) {
+            released.add(buffer);
+            super.release(buffer);
+        }
+    }
+
+    private static class RecordingSubscriber implements Flow.Subscriber<ByteBuffer> {
+        private Flow.Subscription subscription;
+        private boolean completed;
+        private Throwable error;
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(final ByteBuffer item) {
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package pl.aitwar.auriga.collection.placement;
+
+import org.junit.Test;
+import pl.aitwar.auriga.nodes.model.Node;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class HashRingTest {
+    private static final int VIRTUAL_NODES = 128;
+    private static final int KEYS = 10000;
+
+    private static List<Node> nodes(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new Node("node-" + i, "10.0.0." + i + ":7000"))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void shouldPickDistinctReplicasSkippingExcludedNodes() {
+        final HashRing ring = HashRing.build(nodes(5), VIRTUAL_NODES);
+
+        final List<String> replicas = ring.replicas("users", 3, null);
+        assertEquals(3, replicas.size());
+        assertEquals(3, new HashSet<>(replicas).size());
+        assertEquals(replicas, ring.replicas("users", 3, null));
+
+        final List<String> others = ring.replicas("users", 3, Set.of(replicas.get(0)));
+        assertFalse(others.contains(replicas.get(0)));
+        assertEquals(replicas.subList(1, 3), others.subList(0, 2));
+
+        assertEquals(5, ring.replicas("users", 10, null).size());
+        assertTrue(HashRing.EMPTY.replicas("users", 3, null).isEmpty());
+    }
+
+    @Test
+    public void shouldMoveOnlyKeysClaimedByAddedNode() {
+        final List<Node> members = nodes(4);
+        final HashRing before = HashRing.build(members, VIRTUAL_NODES);
+        members.add(new Node("node-new", "10.0.0.99:7000"));
+        final HashRing after = HashRing.build(members, VIRTUAL_NODES);
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            final String previous = before.replicas("collection-" + i, 1, null).get(0);
+            final String current = after.replicas("collection-" + i, 1, null).get(0);
+            if (!previous.equals(current)) {
+                assertEquals("node-new", current);
+                moved++;
+            }
+        }
+
+        assertTrue("moved " + moved, moved > KEYS / 10 && moved < KEYS * 3 / 10);
+    }
+
+    @Test
+    public void shouldSpreadKeysByCapacity() {
+        final List<Node> members = nodes(3);
+        members.get(0).setCapacity(2);
+        final HashRing ring = HashRing.build(members, VIRTUAL_NODES);
+
+        final Map<String, Integer> owned = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            owned.merge(ring.replicas("collection-" + i, 1, null).get(0), 1, Integer::sum);
+        }
+
+        assertEquals(KEYS / 2, owned.get("node-0"), KEYS / 10);
+        assertEquals(KEYS / 4, owned.get("node-1"), KEYS / 10);
+        assertEquals(KEYS / 4, owned.get("node-2"), KEYS / 10);
+    }
+}
@@ -0,0 +1,35 @@
+package pl.aitwar.auriga.collection.repair;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TokenBucketTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void shouldLetCopyRunIntoDebt() {
+        final TokenBucket bucket = new TokenBucket(100, 200, 0);
+
+        assertTrue(bucket.isAvailable(0));
+        bucket.charge(1000);
+
+        assertFalse(bucket.isAvailable(0));
+        assertEquals(8 * SECOND + SECOND / 100, bucket.nanosUntilAvailable(0), SECOND / 1000);
+        assertFalse(bucket.isAvailable(8 * SECOND));
+        assertTrue(bucket.isAvailable(9 * SECOND));
+    }
+
+    @Test
+    public void shouldNotRefillAboveCapacity() {
+        final TokenBucket bucket = new TokenBucket(100, 200, 0);
+
+        bucket.charge(150);
+        assertTrue(bucket.isAvailable(60 * SECOND));
+
+        bucket.charge(200);
+        assertFalse(bucket.isAvailable(60 * SECOND));
+    }
+}
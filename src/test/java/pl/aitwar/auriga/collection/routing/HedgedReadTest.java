@@ -0,0 +1,165 @@
+package pl.aitwar.auriga.collection.routing;
+
+import org.junit.Test;
+import pl.aitwar.auriga.nodes.model.Node;
+
+import javax.net.ssl.SSLSession;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class HedgedReadTest {
+    private final List<Node> replicas = List.of(new Node("node-1"), new Node("node-2"), new Node("node-3"));
+    private final Map<String, CompletableFuture<HttpResponse<InputStream>>> sent = new ConcurrentHashMap<>();
+    private final HedgedRead read = new HedgedRead(replicas, untried -> untried.stream().findFirst(), node -> {
+        final CompletableFuture<HttpResponse<InputStream>> response = new CompletableFuture<>();
+        sent.put(node.getName(), response);
+        return response;
+    });
+
+    @Test
+    public void shouldHedgeOnlyAfterDelay() throws Exception {
+        read.start();
+        assertEquals(1, sent.size());
+
+        final CountDownLatch hedged = new CountDownLatch(1);
+        CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS).execute(() -> {
+            read.hedge();
+            hedged.countDown();
+        });
+
+        Thread.sleep(10);
+        assertEquals(1, sent.size());
+        assertTrue(hedged.await(1, TimeUnit.SECONDS));
+        assertTrue(sent.containsKey("node-2"));
+    }
+
+    @Test
+    public void shouldTakeFirstResponseAndCloseLoser() throws Exception {
+        final CompletableFuture<HttpResponse<InputStream>> result = read.start();
+        read.hedge();
+
+        final FakeResponse winner = new FakeResponse(200);
+        final FakeResponse loser = new FakeResponse(200);
+        sent.get("node-2").complete(winner);
+        sent.get("node-1").complete(loser);
+
+        assertSame(winner, result.get(1, TimeUnit.SECONDS));
+        assertFalse(winner.closed);
+        assertTrue(loser.closed);
+        assertFalse(read.hedge());
+    }
+
+    @Test
+    public void shouldFallBackToNextReplicaOnServerError() throws Exception {
+        final CompletableFuture<HttpResponse<InputStream>> result = read.start();
+
+        final FakeResponse error = new FakeResponse(503);
+        sent.get("node-1").complete(error);
+        assertTrue(sent.containsKey("node-2"));
+        assertFalse(result.isDone());
+
+        final FakeResponse ok = new FakeResponse(200);
+        sent.get("node-2").complete(ok);
+
+        assertSame(ok, result.get(1, TimeUnit.SECONDS));
+        assertTrue(error.closed);
+    }
+
+    @Test
+    public void shouldHandBackServerErrorWhenEveryReplicaFails() throws Exception {
+        final CompletableFuture<HttpResponse<InputStream>> result = read.start();
+
+        final FakeResponse error = new FakeResponse(500);
+        sent.get("node-1").complete(error);
+        sent.get("node-2").completeExceptionally(new ConnectException());
+        sent.get("node-3").completeExceptionally(new ConnectException());
+
+        assertSame(error, result.get(1, TimeUnit.SECONDS));
+        assertFalse(error.closed);
+    }
+
+    @Test
+    public void shouldFailWhenEveryReplicaIsUnreachable() throws Exception {
+        final CompletableFuture<HttpResponse<InputStream>> result = read.start();
+
+        final ConnectException failure = new ConnectException();
+        sent.get("node-1").completeExceptionally(new ConnectException());
+        sent.get("node-2").completeExceptionally(new ConnectException());
+        sent.get("node-3").completeExceptionally(failure);
+
+        try {
+            result.get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(failure, e.getCause());
+        }
+    }
+
+    private static class FakeResponse implements HttpResponse<InputStream> {
+        private final int statusCode;
+        private volatile boolean closed;
+
+        private FakeResponse(final int statusCode) {
+            this.statusCode = statusCode;
+        }
+
+        @Override
+        public int statusCode() {
+            return statusCode;
+        }
+
+        @Override
+        public HttpRequest request() {
+            return null;
+        }
+
+        @Override
+        public Optional<HttpResponse<InputStream>> previousResponse() {
+            return Optional.empty();
+        }
+
+        @Override
+        public HttpHeaders headers() {
+            return HttpHeaders.of(Map.of(), (name, value) -> true);
+        }
+
+        @Override
+        public InputStream body() {
+            return new ByteArrayInputStream(new byte[0]) {
+                @Override
+                public void close() throws IOException {
+                    closed = true;
+                    super.close();
+                }
+            };
+        }
+
+        @Override
+        public Optional<SSLSession> sslSession() {
+            return Optional.empty();
+        }
+
+        @Override
+        public URI uri() {
+            return null;
+        }
+
+        @Override
+        public HttpClient.Version version() {
+            return HttpClient.Version.HTTP_1_1;
+        }
+    }
+}
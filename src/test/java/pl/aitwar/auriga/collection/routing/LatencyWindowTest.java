@@ -0,0 +1,57 @@
+package pl.aitwar.auriga.collection.routing;
+
+import org.junit.Test;
+
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.assertEquals;
+
+public class LatencyWindowTest {
+    @Test
+    public void shouldUseFallbackUntilEnoughSamples() {
+        final LatencyWindow window = new LatencyWindow(100, 0.95);
+        LongStream.rangeClosed(1, 9).forEach(window::record);
+
+        assertEquals(42, window.percentile(10, 42));
+        window.record(10);
+        assertEquals(10, window.percentile(10, 42));
+    }
+
+    @Test
+    public void shouldComputePercentile() {
+        final LatencyWindow window = new LatencyWindow(100, 0.95);
+        LongStream.rangeClosed(1, 100).map(i -> 101 - i).forEach(window::record);
+
+        assertEquals(95, window.percentile(1, 0));
+        assertEquals(50, windowOf(0.5, 100).percentile(1, 0));
+        assertEquals(100, windowOf(1.0, 100).percentile(1, 0));
+    }
+
+    @Test
+    public void shouldOnlyKeepMostRecentSamples() {
+        final LatencyWindow window = new LatencyWindow(64, 0.5);
+        LongStream.rangeClosed(1, 64).forEach(i -> window.record(1_000));
+        LongStream.rangeClosed(1, 64).forEach(i -> window.record(10));
+
+        assertEquals(10, window.percentile(1, 0));
+    }
+
+    @Test
+    public void shouldKeepPercentileUntilRecomputed() {
+        final LatencyWindow window = new LatencyWindow(1000, 1.0);
+        LongStream.rangeClosed(1, 64).forEach(window::record);
+        assertEquals(64, window.percentile(1, 0));
+
+        window.record(1_000);
+        assertEquals(64, window.percentile(1, 0));
+
+        LongStream.rangeClosed(1, 63).forEach(i -> window.record(1));
+        assertEquals(1_000, window.percentile(1, 0));
+    }
+
+    private static LatencyWindow windowOf(final double percentile, final int samples) {
+        final LatencyWindow window = new LatencyWindow(samples, percentile);
+        LongStream.rangeClosed(1, samples).forEach(window::record);
+        return window;
+    }
+}
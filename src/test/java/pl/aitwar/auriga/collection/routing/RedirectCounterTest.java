@@ -0,0 +1,36 @@
+package pl.aitwar.auriga.collection.routing;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class RedirectCounterTest {
+    private static final long HALF_LIFE = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void shouldCountRedirects() {
+        final RedirectCounter counter = new RedirectCounter(HALF_LIFE, 0);
+
+        counter.increment(0);
+        counter.increment(0);
+        counter.increment(0);
+
+        assertEquals(3.0, counter.get(0), 1e-9);
+    }
+
+    @Test
+    public void shouldHalveAfterHalfLife() {
+        final RedirectCounter counter = new RedirectCounter(HALF_LIFE, 0);
+
+        counter.increment(0);
+        counter.increment(0);
+
+        assertEquals(1.0, counter.get(HALF_LIFE), 1e-9);
+        assertEquals(0.5, counter.get(2 * HALF_LIFE), 1e-9);
+
+        counter.increment(2 * HALF_LIFE);
+        assertEquals(1.5, counter.get(2 * HALF_LIFE), 1e-9);
+    }
+}
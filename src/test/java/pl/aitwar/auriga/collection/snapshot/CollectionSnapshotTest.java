@@ -0,0 +1,150 @@
+package pl.aitwar.auriga.collection.snapshot;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pl.aitwar.auriga.collection.CollectionMetadataStore;
+import pl.aitwar.auriga.collection.model.CollectionDescriptor;
+import pl.aitwar.auriga.collection.model.NodeIds;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CollectionSnapshotTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final NodeIds nodeIds = new NodeIds();
+    private CollectionSnapshot snapshot;
+
+    @Before
+    public void setUp() throws IOException {
+        List<CollectionDescriptor> descriptors = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            descriptors.add(CollectionDescriptor.builder()
+                    .name("tenant" + (i % 3) + "/collection" + i)
+                    .targetReplicationLevel(2)
+                    .currentReplicationLevel(i % 2 + 1)
+                    .blocked(i == 42)
+                    .containingNodesName("NODE" + (i % 4))
+                    .containingNodesName("NODE" + (i % 5 + 4))
+                    .build());
+        }
+        descriptors.add(CollectionDescriptor.builder().name("za\u017c\u00f3\u0142\u0107").targetReplicationLevel(1).build());
+
+        Path path = folder.newFile().toPath();
+        CollectionSnapshotWriter.write(path, descriptors);
+        snapshot = CollectionSnapshot.open(path, nodeIds);
+    }
+
+    @Test
+    public void shouldFindEveryDescriptor() {
+        assertEquals(101, snapshot.size());
+
+        CollectionDescriptor descriptor = snapshot.find("tenant0/collection42");
+        assertNotNull(descriptor);
+        assertTrue(descriptor.isBlocked());
+        assertEquals(1, descriptor.getCurrentReplicationLevel());
+        assertTrue(descriptor.containsNode("NODE2"));
+        assertTrue(descriptor.containsNode("NODE6"));
+
+        assertNotNull(snapshot.find("za\u017c\u00f3\u0142\u0107"));
+        assertNull(snapshot.find("tenant0/collection1"));
+    }
+
+    @Test
+    public void shouldKeepRecordsSorted() {
+        for (int i = 1; i < snapshot.size(); i++) {
+            assertTrue(snapshot.nameAt(i - 1).compareTo(snapshot.nameAt(i)) < 0);
+        }
+    }
+
+    @Test
+    public void shouldMaterializeLazilyInStore() {
+        CollectionMetadataStore store = new CollectionMetadataStore(entry -> {
+        }, nodeIds);
+        store.attach(snapshot);
+
+        assertTrue(store.contains("tenant1/collection1"));
+        store.remove("tenant1/collection1");
+        assertFalse(store.contains("tenant1/collection1"));
+
+        List<CollectionDescriptor> visited = new ArrayList<>();
+        store.forEach(visited::add);
+        assertEquals(100, visited.size());
+        assertEquals(100, store.getAll().size());
+    }
+
+    @Test
+    public void shouldIndexReplicasOfAttachedSnapshot() {
+        CollectionMetadataStore store = new CollectionMetadataStore(entry -> {
+        }, nodeIds);
+        store.attach(snapshot);
+
+        assertEquals(51, store.getUnderReplicated().size());
+        assertEquals(25, store.getCollectionsOn("NODE0").size());
+
+        store.removeReplica("tenant0/collection0", "NODE0");
+        store.remove("tenant1/collection4");
+        assertEquals(23, store.getCollectionsOn("NODE0").size());
+        assertFalse(store.getUnderReplicated().contains("tenant1/collection4"));
+    }
+
+    @Test
+    public void shouldRejectTruncatedSnapshot() throws IOException {
+        final byte[] bytes = singleRecordSnapshot();
+
+        for (int length = 0; length < bytes.length; length++) {
+            assertCorrupt(Arrays.copyOf(bytes, length));
+        }
+    }
+
+    @Test
+    public void shouldRejectRecordOutsideFile() throws IOException {
+        // Node table holds one single-letter name, the record offset follows the collection count
+        final byte[] bytes = singleRecordSnapshot();
+        ByteBuffer.wrap(bytes).putInt(17, 1000);
+
+        assertCorrupt(bytes);
+    }
+
+    @Test
+    public void shouldRejectUnknownNodeIndex() throws IOException {
+        final byte[] bytes = singleRecordSnapshot();
+        ByteBuffer.wrap(bytes).putShort(bytes.length - 2, (short) 5);
+
+        assertCorrupt(bytes);
+    }
+
+    private byte[] singleRecordSnapshot() throws IOException {
+        final Path path = folder.newFile().toPath();
+        CollectionSnapshotWriter.write(path, List.of(CollectionDescriptor.builder()
+                .name("c")
+                .targetReplicationLevel(1)
+                .containingNodesName("N")
+                .build()));
+        final byte[] bytes = Files.readAllBytes(path);
+        CollectionSnapshot.open(path, nodeIds);
+        return bytes;
+    }
+
+    private void assertCorrupt(final byte[] bytes) throws IOException {
+        final Path path = folder.newFile().toPath();
+        Files.write(path, bytes);
+
+        try {
+            CollectionSnapshot.open(path, nodeIds);
+            fail("Opened corrupt snapshot of " + bytes.length + " bytes");
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+}
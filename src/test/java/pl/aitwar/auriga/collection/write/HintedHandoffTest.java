@@ -0,0 +1,73 @@
+package pl.aitwar.auriga.collection.write;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import pl.aitwar.auriga.collection.CollectionConfiguration;
+import pl.aitwar.auriga.collection.CollectionMetadataStore;
+import pl.aitwar.auriga.collection.model.DocumentPayload;
+import pl.aitwar.auriga.collection.model.exceptions.DocumentAllocationException;
+import pl.aitwar.auriga.metrics.Metrics;
+import pl.aitwar.auriga.nodes.NodesConfiguration;
+import pl.aitwar.auriga.nodes.NodesService;
+import pl.aitwar.auriga.transport.NodeTransport;
+import pl.aitwar.auriga.transport.TransportConfiguration;
+import pl.aitwar.auriga.transport.model.exceptions.NodeBusyException;
+import pl.aitwar.auriga.utils.BackgroundExecutors;
+import pl.aitwar.auriga.utils.eventbus.EventBus;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.Assert.*;
+
+public class HintedHandoffTest {
+    private final BackgroundExecutors backgroundExecutors = new BackgroundExecutors();
+    private HintedHandoff hintedHandoff;
+
+    @Before
+    public void setUp() {
+        final CollectionConfiguration configuration = CollectionConfiguration.builder().build();
+        final EventBus eventBus = new EventBus();
+        final NodeTransport nodeTransport = new NodeTransport(TransportConfiguration.builder().build(), new Metrics(), backgroundExecutors);
+        final NodesService nodesService = new NodesService(new ObjectMapper(), eventBus, nodeTransport,
+                NodesConfiguration.builder().build());
+
+        hintedHandoff = new HintedHandoff(new NodeWritePipeline(nodeTransport, nodesService, eventBus, configuration, backgroundExecutors), nodesService,
+                new CollectionMetadataStore(entry -> {
+                }), configuration, new Metrics(), backgroundExecutors);
+    }
+
+    @After
+    public void tearDown() {
+        backgroundExecutors.shutdown();
+    }
+
+    @Test
+    public void shouldOnlyTreatUnsentWritesAsRejected() {
+        assertTrue(HintedHandoff.isRejected(new NodeBusyException("node")));
+        assertTrue(HintedHandoff.isRejected(new CompletionException(new DocumentAllocationException("TEST", "node", 503))));
+        assertTrue(HintedHandoff.isRejected(new CompletionException(new DocumentAllocationException("TEST", "node", 404))));
+        assertTrue(HintedHandoff.isRejected(new CompletionException(new ConnectException())));
+
+        assertFalse(HintedHandoff.isRejected(new CompletionException(new HttpTimeoutException("timed out"))));
+        assertFalse(HintedHandoff.isRejected(new IOException("connection reset")));
+        assertFalse(HintedHandoff.isRejected(new CompletionException(new DocumentAllocationException("TEST", "node", 500))));
+        assertFalse(HintedHandoff.isRejected(new CompletionException(new DocumentAllocationException("TEST", "node", 408))));
+    }
+
+    @Test
+    public void shouldDropHintsOfCollection() {
+        hintedHandoff.hint("node", "TEST", DocumentPayload.of("{}"));
+        hintedHandoff.hint("node", "OTHER", DocumentPayload.of("{}"));
+
+        hintedHandoff.drop("node", "TEST");
+
+        assertFalse(hintedHandoff.hasHints("node", "TEST"));
+        assertTrue(hintedHandoff.hasHints("node", "OTHER"));
+        assertEquals(1, hintedHandoff.size());
+    }
+}
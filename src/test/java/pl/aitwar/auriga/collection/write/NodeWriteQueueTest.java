@@ -0,0 +1,116 @@
+package pl.aitwar.auriga.collection.write;
+
+import org.junit.After;
+import org.junit.Test;
+import pl.aitwar.auriga.collection.CollectionConfiguration;
+import pl.aitwar.auriga.collection.model.DocumentPayload;
+import pl.aitwar.auriga.collection.model.exceptions.DocumentAllocationException;
+import pl.aitwar.auriga.nodes.model.Node;
+import pl.aitwar.auriga.utils.BackgroundExecutors;
+import pl.aitwar.auriga.utils.eventbus.EventBus;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class NodeWriteQueueTest {
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final RecordingPipeline pipeline = new RecordingPipeline();
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void shouldGroupBatchByCollection() throws Exception {
+        final NodeWriteQueue queue = queue(100, TimeUnit.MILLISECONDS.toNanos(50));
+
+        final List<CompletableFuture<Void>> writes = List.of(
+                queue.submit("A", DocumentPayload.of("{}")),
+                queue.submit("B", DocumentPayload.of("{}")),
+                queue.submit("A", DocumentPayload.of("{}")));
+        CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new)).get(1, TimeUnit.SECONDS);
+
+        assertEquals(List.of("A:2", "B:1"), pipeline.batches);
+    }
+
+    @Test
+    public void shouldFlushFullBatchWithoutLinger() throws Exception {
+        final NodeWriteQueue queue = queue(4, TimeUnit.SECONDS.toNanos(30));
+
+        final List<CompletableFuture<Void>> writes = IntStream.range(0, 10)
+                .mapToObj(i -> queue.submit("A", DocumentPayload.of("{}")))
+                .collect(Collectors.toList());
+        CompletableFuture.allOf(writes.subList(0, 8).toArray(CompletableFuture[]::new)).get(1, TimeUnit.SECONDS);
+
+        assertEquals(List.of("A:4", "A:4"), pipeline.batches.subList(0, 2));
+    }
+
+    @Test
+    public void shouldFlushAfterLinger() throws Exception {
+        final NodeWriteQueue queue = queue(100, TimeUnit.MILLISECONDS.toNanos(20));
+
+        queue.submit("A", DocumentPayload.of("{}")).get(1, TimeUnit.SECONDS);
+
+        assertEquals(List.of("A:1"), pipeline.batches);
+    }
+
+    @Test
+    public void shouldFailEveryWriteOfFailedBatch() throws Exception {
+        final NodeWriteQueue queue = queue(2, TimeUnit.SECONDS.toNanos(30));
+        pipeline.failure = new DocumentAllocationException("A", "node", 503);
+
+        final CompletableFuture<Void> first = queue.submit("A", DocumentPayload.of("{}"));
+        final CompletableFuture<Void> second = queue.submit("A", DocumentPayload.of("{}"));
+
+        for (CompletableFuture<Void> write : List.of(first, second)) {
+            try {
+                write.get(1, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertSame(pipeline.failure, e.getCause());
+            }
+        }
+    }
+
+    @Test
+    public void shouldSendToCurrentAddress() throws Exception {
+        final NodeWriteQueue queue = queue(100, TimeUnit.MILLISECONDS.toNanos(20));
+        pipeline.node = new Node("node", "localhost:2");
+
+        queue.submit("A", DocumentPayload.of("{}")).get(1, TimeUnit.SECONDS);
+
+        assertEquals(List.of("localhost:2"), pipeline.addresses);
+    }
+
+    private NodeWriteQueue queue(final int maxDocuments, final long lingerNanos) {
+        return new NodeWriteQueue("node", pipeline, scheduler, maxDocuments, Long.MAX_VALUE, lingerNanos, 1000);
+    }
+
+    private static class RecordingPipeline extends NodeWritePipeline {
+        private final List<String> batches = new CopyOnWriteArrayList<>();
+        private final List<String> addresses = new CopyOnWriteArrayList<>();
+        private volatile Node node = new Node("node", "localhost:1");
+        private volatile Exception failure;
+
+        private RecordingPipeline() {
+            super(null, null, new EventBus(), CollectionConfiguration.builder().build(), new BackgroundExecutors());
+        }
+
+        @Override
+        Node nodeOf(final String nodeName) {
+            return node;
+        }
+
+        @Override
+        CompletableFuture<Void> send(final Node node, final String collectionName, final List<DocumentPayload> documents) {
+            batches.add(collectionName + ":" + documents.size());
+            addresses.add(node.getAddress());
+            return failure == null ? CompletableFuture.completedFuture(null) : CompletableFuture.failedFuture(failure);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package pl.aitwar.auriga.collection.write;
+
+import org.junit.Test;
+import pl.aitwar.auriga.collection.model.WriteConsistency;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+public class WriteQuorumTest {
+    private final CompletableFuture<String> a = new CompletableFuture<>();
+    private final CompletableFuture<String> b = new CompletableFuture<>();
+    private final CompletableFuture<String> c = new CompletableFuture<>();
+    private final Map<String, CompletableFuture<String>> writes = Map.of("a", a, "b", b, "c", c);
+
+    @Test
+    public void shouldAcknowledgeOnceQuorumConfirmed() {
+        final CompletableFuture<Set<String>> result = WriteQuorum.await(writes, WriteConsistency.QUORUM.required(3));
+
+        a.complete("a");
+        assertFalse(result.isDone());
+        c.completeExceptionally(new RuntimeException("slow node died"));
+        assertFalse(result.isDone());
+        b.complete("b");
+
+        assertEquals(Set.of("a", "b"), result.join());
+    }
+
+    @Test
+    public void shouldFailOnceQuorumIsOutOfReach() {
+        final CompletableFuture<Set<String>> result = WriteQuorum.await(writes, WriteConsistency.QUORUM.required(3));
+
+        a.completeExceptionally(new RuntimeException("down"));
+        assertFalse(result.isDone());
+        b.completeExceptionally(new RuntimeException("down"));
+
+        assertTrue(result.isCompletedExceptionally());
+    }
+
+    @Test
+    public void shouldNotWaitForSlowReplicasWithConsistencyOne() {
+        final CompletableFuture<Set<String>> result = WriteQuorum.await(writes, WriteConsistency.ONE.required(3));
+
+        b.complete("b");
+
+        assertEquals(Set.of("b"), result.join());
+    }
+
+    @Test
+    public void shouldRequireEveryReplicaWithConsistencyAll() {
+        final CompletableFuture<Set<String>> result = WriteQuorum.await(writes, WriteConsistency.ALL.required(3));
+
+        a.complete("a");
+        b.complete("b");
+        assertFalse(result.isDone());
+        c.completeExceptionally(new RuntimeException("down"));
+
+        assertTrue(result.isCompletedExceptionally());
+    }
+}
@@ -0,0 +1,53 @@
+package pl.aitwar.auriga.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+    @Test
+    public void shouldRenderCumulativeHistogramBuckets() {
+        final Metrics metrics = new Metrics();
+        final Histogram histogram = metrics.histogram("latency_seconds", "Latency", Metrics.labels("route", "GET /"));
+
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(300));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(3));
+        histogram.record(TimeUnit.SECONDS.toNanos(30));
+
+        final String scrape = metrics.scrape();
+        assertTrue(scrape.contains("# TYPE latency_seconds histogram\n"));
+        assertTrue(scrape.contains("latency_seconds_bucket{route=\"GET /\",le=\"5.0E-4\"} 1\n"));
+        assertTrue(scrape.contains("latency_seconds_bucket{route=\"GET /\",le=\"0.005\"} 2\n"));
+        assertTrue(scrape.contains("latency_seconds_bucket{route=\"GET /\",le=\"10.0\"} 2\n"));
+        assertTrue(scrape.contains("latency_seconds_bucket{route=\"GET /\",le=\"+Inf\"} 3\n"));
+        assertTrue(scrape.contains("latency_seconds_count{route=\"GET /\"} 3\n"));
+    }
+
+    @Test
+    public void shouldShareCountersAndReadGauges() {
+        final Metrics metrics = new Metrics();
+
+        metrics.counter("requests_total", "Requests", Metrics.labels("status", "503")).increment();
+        metrics.counter("requests_total", "Requests", Metrics.labels("status", "503")).increment();
+        metrics.gauge("queue_depth", "Queue depth", "", () -> 7);
+
+        final String scrape = metrics.scrape();
+        assertTrue(scrape.contains("requests_total{status=\"503\"} 2\n"));
+        assertTrue(scrape.contains("queue_depth 7.0\n"));
+    }
+
+    @Test
+    public void shouldEscapeLabelValues() {
+        assertEquals("name=\"a\\\"b\\\\c\"", Metrics.labels("name", "a\"b\\c"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectTypeMismatch() {
+        final Metrics metrics = new Metrics();
+
+        metrics.counter("requests_total", "Requests", "");
+        metrics.histogram("requests_total", "Requests", "");
+    }
+}
@@ -0,0 +1,116 @@
+package pl.aitwar.auriga.nodes;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import pl.aitwar.auriga.metrics.Metrics;
+import pl.aitwar.auriga.nodes.model.NodeRegistration;
+import pl.aitwar.auriga.transport.NodeTransport;
+import pl.aitwar.auriga.transport.TransportConfiguration;
+import pl.aitwar.auriga.utils.BackgroundExecutors;
+import pl.aitwar.auriga.utils.eventbus.Event;
+import pl.aitwar.auriga.utils.eventbus.EventBus;
+import pl.aitwar.auriga.utils.eventbus.EventBusConfiguration;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class NodesServiceTest {
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<String> cleanedUp = new CopyOnWriteArrayList<>();
+    private final CountDownLatch delivered = new CountDownLatch(2);
+    private final BackgroundExecutors backgroundExecutors = new BackgroundExecutors();
+    private NodesService nodesService;
+
+    @Before
+    public void setUp() {
+        final EventBus eventBus = new EventBus(EventBusConfiguration.builder().deliveryThreads(1).build(), backgroundExecutors);
+        // Holds the only delivery thread, so removals queued behind it arrive late
+        eventBus.listenAsync(Event.NODE_REM, payload -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        nodesService = new NodesService(new ObjectMapper(), eventBus,
+                new NodeTransport(TransportConfiguration.builder().build(), new Metrics(), backgroundExecutors),
+                NodesConfiguration.builder().build());
+        nodesService.onRemoved(cleanedUp::add);
+        eventBus.listenAsync(Event.NODE_REM, payload -> delivered.countDown());
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        backgroundExecutors.shutdown();
+    }
+
+    @Test
+    public void shouldCleanUpRemovedNode() throws Exception {
+        nodesService.registerNode(registration("node-1"));
+        nodesService.forgetNode("node-1");
+        nodesService.registerNode(registration("node-2"));
+        nodesService.forgetNode("node-2");
+        release.countDown();
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("node-1", "node-2"), cleanedUp);
+    }
+
+    @Test
+    public void shouldNotApplyLateRemovalToNewGeneration() throws Exception {
+        nodesService.registerNode(registration("node-1"));
+        nodesService.forgetNode("node-1");
+        nodesService.registerNode(registration("node-1"));
+
+        // Cleaned up by the registration itself, before the new node is visible
+        assertEquals(List.of("node-1"), cleanedUp);
+
+        nodesService.registerNode(registration("node-2"));
+        nodesService.forgetNode("node-2");
+        release.countDown();
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("node-1", "node-2"), cleanedUp);
+        assertNotNull(nodesService.getNode("node-1"));
+    }
+
+    @Test
+    public void shouldBuildStatusUriOfAddress() {
+        assertEquals("http://host:8081/status", NodesService.statusUriOf("host", 8081, false));
+        assertEquals("http://host:8081/status", NodesService.statusUriOf("host:9000", 8081, false));
+        assertEquals("http://10.0.0.1:8081/status", NodesService.statusUriOf("10.0.0.1:9000", 8081, false));
+        assertEquals("http://[::1]:8081/status", NodesService.statusUriOf("[::1]", 8081, false));
+        assertEquals("http://[::1]:8081/status", NodesService.statusUriOf("[::1]:9000", 8081, false));
+        assertEquals("http://[fe80::1]:8081/status", NodesService.statusUriOf("fe80::1", 8081, false));
+    }
+
+    @Test
+    public void shouldBuildStatusUriOnNodePortWhenConfigured() {
+        assertEquals("http://host:8081/status", NodesService.statusUriOf("host", 8081, true));
+        assertEquals("http://host:9000/status", NodesService.statusUriOf("host:9000", 8081, true));
+        assertEquals("http://[::1]:9000/status", NodesService.statusUriOf("[::1]:9000", 8081, true));
+    }
+
+    @Test
+    public void shouldFailUsageOfMalformedAddressAsynchronously() throws Exception {
+        final NodeRegistration registration = registration("broken");
+        registration.setAddress("host name");
+        nodesService.registerNode(registration);
+
+        assertTrue(nodesService.getNodeUsage("broken").isCompletedExceptionally());
+    }
+
+    private static NodeRegistration registration(final String name) {
+        final NodeRegistration registration = new NodeRegistration();
+        registration.setName(name);
+        registration.setAddress("localhost:1");
+        return registration;
+    }
+}
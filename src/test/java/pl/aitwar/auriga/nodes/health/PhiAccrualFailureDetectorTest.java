@@ -0,0 +1,52 @@
+package pl.aitwar.auriga.nodes.health;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PhiAccrualFailureDetectorTest {
+    private static final double THRESHOLD = 8.0;
+
+    private PhiAccrualFailureDetector detector;
+
+    @Before
+    public void setUp() {
+        detector = new PhiAccrualFailureDetector(100, 100, 3000, 1000, 0);
+
+        for (long time = 1000; time <= 20000; time += 1000) {
+            detector.heartbeat(time);
+        }
+    }
+
+    @Test
+    public void shouldTrustRegularlyBeatingNode() {
+        assertTrue(detector.isAvailable(20500, THRESHOLD));
+        assertTrue(detector.phi(20500) < 1.0);
+    }
+
+    @Test
+    public void shouldTolerateShortPause() {
+        assertTrue(detector.isAvailable(23500, THRESHOLD));
+    }
+
+    @Test
+    public void shouldSuspectSilentNode() {
+        assertFalse(detector.isAvailable(30000, THRESHOLD));
+    }
+
+    @Test
+    public void shouldGrowSuspicionWithSilence() {
+        assertTrue(detector.phi(24000) < detector.phi(25000));
+        assertTrue(detector.phi(25000) < detector.phi(26000));
+    }
+
+    @Test
+    public void shouldRecoverAfterHeartbeat() {
+        assertFalse(detector.isAvailable(30000, THRESHOLD));
+
+        detector.heartbeat(30000);
+
+        assertTrue(detector.isAvailable(30500, THRESHOLD));
+    }
+}
@@ -0,0 +1,30 @@
+package pl.aitwar.auriga.transport;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class NodeChannelTest {
+    @Test
+    public void shouldRunQueuedCallsCompletingRightAwayWithoutRecursing() throws Exception {
+        final NodeChannel channel = new NodeChannel("node", 1, 100_000);
+        final CompletableFuture<Integer> first = new CompletableFuture<>();
+        channel.submit(() -> first);
+
+        final List<CompletableFuture<Integer>> queued = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            final int value = i;
+            queued.add(channel.submit(() -> CompletableFuture.completedFuture(value)));
+        }
+
+        first.complete(-1);
+
+        assertEquals(49_999, (int) queued.get(queued.size() - 1).get(1, TimeUnit.SECONDS));
+        assertTrue(channel.isIdle());
+    }
+}
@@ -0,0 +1,104 @@
+package pl.aitwar.auriga.transport;
+
+import io.javalin.Javalin;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import pl.aitwar.auriga.metrics.Metrics;
+import pl.aitwar.auriga.nodes.model.Node;
+import pl.aitwar.auriga.transport.model.NodeOperation;
+import pl.aitwar.auriga.transport.model.exceptions.NodeBusyException;
+import pl.aitwar.auriga.utils.BackgroundExecutors;
+
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class NodeTransportTest {
+    private final CountDownLatch release = new CountDownLatch(1);
+    private Javalin server;
+    private final BackgroundExecutors backgroundExecutors = new BackgroundExecutors();
+    private NodeTransport transport;
+    private Node node;
+
+    @Before
+    public void setUp() {
+        server = Javalin.create().disableStartupBanner().port(0).start();
+        server.get("/slow", ctx -> {
+            release.await(5, TimeUnit.SECONDS);
+            ctx.result("slow");
+        });
+        server.get("/status", ctx -> ctx.result("{}"));
+
+        transport = new NodeTransport(TransportConfiguration.builder()
+                .maxInFlightPerNode(1)
+                .maxQueuedPerNode(1)
+                .build(), new Metrics(), backgroundExecutors);
+        node = new Node("node", "localhost:" + server.port());
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        server.stop();
+        backgroundExecutors.shutdown();
+    }
+
+    @Test
+    public void shouldNotQueueStatusBehindLimitedRequests() throws Exception {
+        final CompletableFuture<HttpResponse<String>> running = send(NodeOperation.READ, "/slow");
+        final CompletableFuture<HttpResponse<String>> queued = send(NodeOperation.READ, "/slow");
+
+        try {
+            send(NodeOperation.READ, "/status").get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof NodeBusyException);
+        }
+
+        assertEquals("{}", send(NodeOperation.STATUS, "/status").get(1, TimeUnit.SECONDS).body());
+        assertFalse(running.isDone());
+
+        release.countDown();
+        assertEquals("slow", running.get(5, TimeUnit.SECONDS).body());
+        assertEquals("slow", queued.get(5, TimeUnit.SECONDS).body());
+    }
+
+    @Test
+    public void shouldKeepLimitOfBusyNodeItForgot() throws Exception {
+        final CompletableFuture<HttpResponse<String>> running = send(NodeOperation.READ, "/slow");
+        transport.forget("node");
+        final CompletableFuture<HttpResponse<String>> queued = send(NodeOperation.READ, "/slow");
+
+        try {
+            send(NodeOperation.READ, "/slow").get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof NodeBusyException);
+        }
+
+        release.countDown();
+        assertEquals("slow", running.get(5, TimeUnit.SECONDS).body());
+        assertEquals("slow", queued.get(5, TimeUnit.SECONDS).body());
+    }
+
+    @Test
+    public void shouldEstimateLatencyFromReadsOnly() throws Exception {
+        release.countDown();
+
+        send(NodeOperation.PUT, "/slow").get(5, TimeUnit.SECONDS);
+        assertFalse(transport.getLatency("node").isPresent());
+
+        send(NodeOperation.READ, "/slow").get(5, TimeUnit.SECONDS);
+        assertTrue(transport.getLatency("node").isPresent());
+    }
+
+    private CompletableFuture<HttpResponse<String>> send(final NodeOperation operation, final String path) {
+        return transport.send(node, operation, transport.request("http://" + node.getAddress() + path).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+}
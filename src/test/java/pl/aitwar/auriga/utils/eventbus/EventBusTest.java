@@ -4,7 +4,13 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.Assert.*;
 
@@ -23,35 +29,76 @@ public class EventBusTest {
 
     @Test
     public void shouldInformListenerAboutEvent() {
-        eventBus.listen(Event.values()[0], payload -> {
-            assertNotNull(payload);
-            assertEquals(payload, "TEST");
-        });
+        final List<String> received = new CopyOnWriteArrayList<>();
 
-        eventBus.listen(Event.values()[1], payload -> {
+        eventBus.listen(Event.NODE_ADD, received::add);
+        eventBus.listen(Event.NODE_REM, payload -> {
             fail();
         });
 
-        eventBus.publish(Event.values()[0], "TEST");
+        eventBus.publish(Event.NODE_ADD, "TEST");
+
+        assertEquals(List.of("TEST"), received);
     }
 
     @Test
     public void shouldClearItself() {
-        eventBus.listen(Event.values()[0], payload -> fail());
-        eventBus.listen(Event.values()[1], payload -> fail());
+        eventBus.listen(Event.NODE_ADD, payload -> fail());
+        eventBus.listen(Event.NODE_REM, payload -> fail());
 
         eventBus.clear();
 
-        eventBus.publish(Event.values()[0], "TEST");
-        eventBus.publish(Event.values()[1], "TEST2");
+        eventBus.publish(Event.NODE_ADD, "TEST");
+        eventBus.publish(Event.NODE_REM, "TEST2");
     }
 
     @Test
     public void shouldBeForgottenOnRequest() {
-        Consumer<Object> consumer = payload -> fail();
+        Consumer<String> consumer = payload -> fail();
 
-        eventBus.listen(Event.values()[0], consumer);
-        eventBus.forget(Event.values()[0], consumer);
-        eventBus.publish(Event.values()[0], "TEST");
+        eventBus.listen(Event.NODE_ADD, consumer);
+        eventBus.forget(Event.NODE_ADD, consumer);
+        eventBus.publish(Event.NODE_ADD, "TEST");
+    }
+
+    @Test
+    public void shouldDeliverAsynchronouslyInOrder() throws InterruptedException {
+        final List<String> received = new CopyOnWriteArrayList<>();
+        final CountDownLatch delivered = new CountDownLatch(5000);
+
+        eventBus.listenAsync(Event.NODE_ADD, payload -> {
+            received.add(payload);
+            delivered.countDown();
+        });
+        IntStream.range(0, 5000).forEach(i -> eventBus.publish(Event.NODE_ADD, "node-" + i));
+
+        assertTrue(delivered.await(10, TimeUnit.SECONDS));
+        assertEquals(IntStream.range(0, 5000).mapToObj(i -> "node-" + i).collect(Collectors.toList()), received);
+    }
+
+    @Test
+    public void shouldDropEventsOfFullQueue() throws InterruptedException {
+        final EventBus droppingBus = new EventBus(EventBusConfiguration.builder()
+                .queueCapacity(4)
+                .build());
+        final CountDownLatch release = new CountDownLatch(1);
+
+        droppingBus.listenAsync(Event.NODE_ADD, Backpressure.DROP, payload -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        IntStream.range(0, 100).forEach(i -> droppingBus.publish(Event.NODE_ADD, "node-" + i));
+        release.countDown();
+
+        assertTrue(droppingBus.getDropped() >= 100 - 4 - 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRefuseDroppingListenerOfUndroppableEvent() {
+        eventBus.listenAsync(Event.NODE_REM, Backpressure.DROP, payload -> {
+        });
     }
 }